@@ -0,0 +1,385 @@
+package it.unicam.cs.followme;
+
+import it.unicam.cs.followme.command.LoopStack;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.LabelTable;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.models.SpatialGrid;
+import it.unicam.cs.followme.models.SwarmState;
+import it.unicam.cs.followme.util.SplitMix64;
+import it.unicam.cs.followme.utilities.ShapeData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary checkpoint of a simulation over a robot environment, made of the clock of the simulator
+ * and the whole state of the environment: shapes, labels and, for every robot, its position,
+ * direction, speed, label, program counter, loop counters and random stream.
+ * The robots are stored column by column in the order of their slots, and a checkpoint is
+ * written and read back through a file channel mapped one bounded segment at a time, so that
+ * a swarm is not limited by the size of a single mapping.
+ * The cells of the spatial index are stored as they are, with the order of their slots and the
+ * sums of their coordinates, so that the restored index computes the same signal centroids.
+ * Programs are not stored: every robot running a program must run the same instructions, whose
+ * fingerprint is stored and checked against the program given again when the checkpoint is read.
+ * The random stream of every robot is stored through its seed and gamma, so that a run continued
+ * after the checkpoint and a run restored from it draw the same random values. Writing a checkpoint
+ * does not change the simulation, so a seeded run draws the same values whether it is checkpointed or not.
+ *
+ * @param environment The environment of the simulation.
+ * @param tick        The number of ticks executed by the simulator.
+ * @param currentTime The simulated time elapsed.
+ * @param dt          The time step of the simulation.
+ * @param time        The total simulation time.
+ */
+record Checkpoint(RobotEnvironment environment, long tick, double currentTime, double dt, double time) {
+
+    private static final int MAGIC = 0x52534B50;
+
+    private static final int VERSION = 3;
+
+    /**
+     * Writes the checkpoint to a file, replacing its content. The environment must not be ticking.
+     *
+     * @param file The file receiving the checkpoint.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the environment holds entities other than robots, or robots running programs made of different instructions.
+     */
+    void write(Path file) throws IOException {
+        SwarmState state = this.environment.getState();
+        int count = state.size();
+        Program program = null;
+        int[] remap = new int[state.getLabels().size()];
+        Arrays.fill(remap, -1);
+        List<String> labels = new ArrayList<>();
+        long counters = 0;
+        for (int slot = 0; slot < count; slot++) {
+            if (!(state.getEntity(slot) instanceof Robot robot))
+                throw new IllegalArgumentException("Only robots can be checkpointed.");
+            if (robot.getProgram().length() > 0) {
+                if (program == null)
+                    program = robot.getProgram();
+                else if (!program.equals(robot.getProgram()))
+                    throw new IllegalArgumentException("Every robot must run the same program.");
+            }
+            int label = state.getLabel(slot);
+            if (label != LabelTable.NO_LABEL && remap[label] < 0) {
+                remap[label] = labels.size();
+                labels.add(state.getLabels().name(label));
+            }
+            counters += robot.getLoops().depth();
+        }
+        SpatialGrid grid = this.environment.getGrid();
+        long cells = 0;
+        for (int i = 0; i < grid.getCapacity(); i++) {
+            SpatialGrid.CellContent cell = grid.getCell(i);
+            if (cell == null)
+                continue;
+            cells += 4 + 8 + 4 + 4L * cell.slots().length + 4 + 24L * cell.labels().length;
+            for (int label : cell.labels()) {
+                if (label != LabelTable.NO_LABEL && remap[label] < 0) {
+                    remap[label] = labels.size();
+                    labels.add(state.getLabels().name(label));
+                }
+            }
+        }
+        List<ShapeData> shapes = this.environment.getShapes();
+        long size = 4 + 4 + 8 + 8 + 8 + 8 + 8 + 1 + 4 + 4 + 4 + 8 + 4 + 4 * counters;
+        for (String label : labels)
+            size += stringSize(label);
+        for (ShapeData shape : shapes)
+            size += stringSize(shape.label()) + stringSize(shape.shape()) + 4 + 8L * shape.args().length;
+        size += (long) count * (5 * 8 + 3 * 4 + 16 + 1) + 4 + 4 + cells;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Segments out = new Segments(channel, FileChannel.MapMode.READ_WRITE, size);
+            out.reserve(8).putInt(MAGIC).putInt(VERSION);
+            out.reserve(8 * 4).putLong(this.tick).putDouble(this.currentTime).putDouble(this.dt).putDouble(this.time);
+            out.reserve(8 + 1).putDouble(this.environment.getCellSize()).put((byte) (this.environment.isCellSizeFixed() ? 1 : 0));
+            out.reserve(4).putInt(labels.size());
+            for (String label : labels)
+                putString(out, label);
+            out.reserve(4).putInt(shapes.size());
+            for (ShapeData shape : shapes) {
+                putString(out, shape.label());
+                putString(out, shape.shape());
+                double[] args = shape.args();
+                out.reserve(4).putInt(args.length);
+                for (double arg : args)
+                    out.reserve(8).putDouble(arg);
+            }
+            out.reserve(4 + 8).putInt(program == null ? 0 : program.length()).putLong(program == null ? 0 : program.fingerprint());
+            out.reserve(4).putInt(count);
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(8).putDouble(state.getX(slot));
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(8).putDouble(state.getY(slot));
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(8).putDouble(state.getDeltaX(slot));
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(8).putDouble(state.getDeltaY(slot));
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(8).putDouble(state.getSpeed(slot));
+            for (int slot = 0; slot < count; slot++) {
+                int label = state.getLabel(slot);
+                out.reserve(4).putInt(label == LabelTable.NO_LABEL ? -1 : remap[label]);
+            }
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(1).put((byte) (((Robot) state.getEntity(slot)).getProgram().length() > 0 ? 1 : 0));
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(4).putInt(state.getProgramCounter(slot));
+            for (int slot = 0; slot < count; slot++)
+                out.reserve(4).putInt(((Robot) state.getEntity(slot)).getLoops().depth());
+            for (int slot = 0; slot < count; slot++) {
+                LoopStack loops = ((Robot) state.getEntity(slot)).getLoops();
+                for (int i = 0; i < loops.depth(); i++)
+                    out.reserve(4).putInt(loops.get(i));
+            }
+            for (int slot = 0; slot < count; slot++) {
+                SplitMix64 random = state.getEntity(slot).getRandom();
+                out.reserve(16).putLong(random.getSeed()).putLong(random.getGamma());
+            }
+            out.reserve(8).putInt(grid.getCapacity()).putInt(grid.getCellCount());
+            for (int i = 0; i < grid.getCapacity(); i++) {
+                SpatialGrid.CellContent cell = grid.getCell(i);
+                if (cell != null)
+                    putCell(out, cell, remap);
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * Reads a checkpoint from a file into a new environment, whose robots list the robots in the order of their former slots.
+     *
+     * @param file    The file containing the checkpoint.
+     * @param program The program run by the robots when the checkpoint was written.
+     * @return The checkpoint read from the file.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is not a checkpoint, or the checkpoint was written with another program.
+     */
+    static Checkpoint read(Path file, Program program) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(new Segments(channel, FileChannel.MapMode.READ_ONLY, channel.size()), program);
+        }
+    }
+
+    private static Checkpoint read(Segments in, Program program) throws IOException {
+        if (in.size() < 8 || in.reserve(4).getInt() != MAGIC || in.reserve(4).getInt() != VERSION)
+            throw new IllegalArgumentException("The file is not a checkpoint.");
+        long tick = in.reserve(8).getLong();
+        double currentTime = in.reserve(8).getDouble();
+        double dt = in.reserve(8).getDouble();
+        double time = in.reserve(8).getDouble();
+        double cellSize = in.reserve(8).getDouble();
+        boolean fixedCellSize = in.reserve(1).get() != 0;
+        RobotEnvironment environment = program == null || program.getLabels() == null
+                ? new RobotEnvironment() : new RobotEnvironment(program.getLabels());
+        int[] labels = new int[in.reserve(4).getInt()];
+        for (int i = 0; i < labels.length; i++)
+            labels[i] = environment.getLabels().intern(getString(in));
+        if (fixedCellSize)
+            environment.setCellSize(cellSize);
+        else
+            environment.fitCellSize(cellSize);
+        for (int shapes = in.reserve(4).getInt(); shapes > 0; shapes--) {
+            String label = getString(in);
+            String shape = getString(in);
+            double[] args = new double[in.reserve(4).getInt()];
+            for (int i = 0; i < args.length; i++)
+                args[i] = in.reserve(8).getDouble();
+            environment.addShape(new ShapeData(label, shape, args));
+        }
+        int length = in.reserve(4).getInt();
+        long fingerprint = in.reserve(8).getLong();
+        if (length > 0 && (program == null || program.length() != length || program.fingerprint() != fingerprint))
+            throw new IllegalArgumentException("The checkpoint was written with another program.");
+        int count = in.reserve(4).getInt();
+        double[] x = getDoubles(in, count);
+        double[] y = getDoubles(in, count);
+        double[] dx = getDoubles(in, count);
+        double[] dy = getDoubles(in, count);
+        double[] speed = getDoubles(in, count);
+        int[] label = getInts(in, count);
+        byte[] running = getBytes(in, count);
+        int[] pc = getInts(in, count);
+        int[] depth = getInts(in, count);
+        environment.addRobots(x, y, count);
+        SwarmState state = environment.getState();
+        for (int slot = 0; slot < count; slot++) {
+            Robot robot = (Robot) state.getEntity(slot);
+            state.setDirection(slot, dx[slot], dy[slot]);
+            state.setSpeed(slot, speed[slot]);
+            if (label[slot] >= 0)
+                robot.setLabel(labels[label[slot]]);
+            if (running[slot] != 0)
+                robot.addProgram(program);
+            for (int i = 0; i < depth[slot]; i++)
+                robot.getLoops().push(in.reserve(4).getInt());
+            state.setProgramCounter(slot, pc[slot]);
+        }
+        for (int slot = 0; slot < count; slot++) {
+            ByteBuffer buffer = in.reserve(16);
+            state.getEntity(slot).setRandom(new SplitMix64(buffer.getLong(), buffer.getLong()));
+        }
+        SpatialGrid grid = environment.getGrid();
+        grid.clear(in.reserve(4).getInt());
+        for (int cells = in.reserve(4).getInt(); cells > 0; cells--)
+            grid.restore(getCell(in, labels));
+        return new Checkpoint(environment, tick, currentTime, dt, time);
+    }
+
+    private static void putCell(Segments out, SpatialGrid.CellContent cell, int[] remap) throws IOException {
+        out.reserve(4 + 8 + 4).putInt(cell.index()).putLong(cell.key()).putInt(cell.slots().length);
+        for (int slot : cell.slots())
+            out.reserve(4).putInt(slot);
+        out.reserve(4).putInt(cell.labels().length);
+        for (int i = 0; i < cell.labels().length; i++) {
+            int label = cell.labels()[i];
+            out.reserve(24).putInt(label == LabelTable.NO_LABEL ? -1 : remap[label]).putInt(cell.counts()[i])
+                    .putDouble(cell.sumX()[i]).putDouble(cell.sumY()[i]);
+        }
+    }
+
+    private static SpatialGrid.CellContent getCell(Segments in, int[] labels) throws IOException {
+        ByteBuffer buffer = in.reserve(4 + 8);
+        int index = buffer.getInt();
+        long key = buffer.getLong();
+        int[] slots = getInts(in, in.reserve(4).getInt());
+        int aggregates = in.reserve(4).getInt();
+        int[] ids = new int[aggregates];
+        int[] counts = new int[aggregates];
+        double[] sumX = new double[aggregates];
+        double[] sumY = new double[aggregates];
+        for (int i = 0; i < aggregates; i++) {
+            buffer = in.reserve(24);
+            int label = buffer.getInt();
+            ids[i] = label < 0 ? LabelTable.NO_LABEL : labels[label];
+            counts[i] = buffer.getInt();
+            sumX[i] = buffer.getDouble();
+            sumY[i] = buffer.getDouble();
+        }
+        return new SpatialGrid.CellContent(index, key, slots, ids, counts, sumX, sumY);
+    }
+
+    private static long stringSize(String value) {
+        return 4 + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(Segments out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.reserve(4 + bytes.length).putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(Segments in) throws IOException {
+        int length = in.reserve(4).getInt();
+        byte[] bytes = new byte[length];
+        in.reserve(length).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static double[] getDoubles(Segments in, int count) throws IOException {
+        double[] values = new double[count];
+        for (int i = 0; i < count; ) {
+            ByteBuffer buffer = in.reserve(8);
+            int n = Math.min(count - i, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().get(values, i, n);
+            buffer.position(buffer.position() + 8 * n);
+            i += n;
+        }
+        return values;
+    }
+
+    private static int[] getInts(Segments in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; ) {
+            ByteBuffer buffer = in.reserve(4);
+            int n = Math.min(count - i, buffer.remaining() / 4);
+            buffer.asIntBuffer().get(values, i, n);
+            buffer.position(buffer.position() + 4 * n);
+            i += n;
+        }
+        return values;
+    }
+
+    private static byte[] getBytes(Segments in, int count) throws IOException {
+        byte[] values = new byte[count];
+        for (int i = 0; i < count; ) {
+            ByteBuffer buffer = in.reserve(1);
+            int n = Math.min(count - i, buffer.remaining());
+            buffer.get(values, i, n);
+            i += n;
+        }
+        return values;
+    }
+
+    /**
+     * File of a known size accessed sequentially through mappings of at most {@link #SEGMENT_SIZE}
+     * bytes, each of which is mapped when the previous one cannot hold the next value.
+     */
+    private static final class Segments {
+
+        /**
+         * Largest number of bytes mapped at once, unless a single value is larger.
+         */
+        private static final long SEGMENT_SIZE = 1L << 26;
+
+        private final FileChannel channel;
+
+        private final FileChannel.MapMode mode;
+
+        private final long size;
+
+        private MappedByteBuffer buffer;
+
+        private long start;
+
+        private Segments(FileChannel channel, FileChannel.MapMode mode, long size) {
+            this.channel = channel;
+            this.mode = mode;
+            this.size = size;
+        }
+
+        private long size() {
+            return this.size;
+        }
+
+        /**
+         * Gets the mapped segment positioned at the next value, mapping the next segment if fewer
+         * than the given number of bytes are left in the current one.
+         */
+        private ByteBuffer reserve(int bytes) throws IOException {
+            if (this.buffer != null && this.buffer.remaining() >= bytes)
+                return this.buffer;
+            long position = this.buffer == null ? 0 : this.start + this.buffer.position();
+            long length = Math.min(Math.max(SEGMENT_SIZE, bytes), this.size - position);
+            if (length < bytes)
+                throw new IllegalArgumentException("The checkpoint is truncated.");
+            this.force();
+            this.buffer = this.channel.map(this.mode, position, length);
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+            this.start = position;
+            return this.buffer;
+        }
+
+        /**
+         * Writes the content of the current segment to the file, if it was mapped for writing.
+         */
+        private void force() {
+            if (this.buffer != null && this.mode == FileChannel.MapMode.READ_WRITE)
+                this.buffer.force();
+        }
+    }
+}
@@ -1,13 +1,13 @@
 package it.unicam.cs.followme;
 
+import it.unicam.cs.followme.io.LoadSummary;
+import it.unicam.cs.followme.io.RobotLoader;
 import it.unicam.cs.followme.models.*;
-import it.unicam.cs.followme.util.Point;
 import it.unicam.cs.followme.utilities.FollowMeParser;
 import it.unicam.cs.followme.utilities.FollowMeParserException;
 import it.unicam.cs.followme.utilities.ShapeData;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
@@ -19,6 +19,7 @@ public class Controller {
 
     private final FollowMeParser parser;
     private final Environment environment;
+    private final RobotLoader loader;
 
     /**
      * Constructs a Controller with a default RobotEnvironment and a FollowMeParser with a ParserHandler.
@@ -26,20 +27,18 @@ public class Controller {
     public Controller() {
         this.environment = new RobotEnvironment();
         this.parser = new FollowMeParser(new ParserHandler(this.environment));
+        this.loader = new RobotLoader();
     }
 
     /**
      * Parses entity information from a default file and adds entities to the environment.
      *
+     * @return The summary of the load of the file.
      * @throws IOException If an I/O error occurs.
      */
-    public void parseEntity() throws IOException {
-        List<String> lines = Files.readAllLines(new File(Objects.requireNonNull(getClass().getClassLoader().getResource("files/robots.txt")).
-                getFile()).toPath());
-        for (String line : lines) {
-            String[] elements = line.trim().toUpperCase().split(" ");
-            this.environment.addEntity(new Robot(new Point(Double.parseDouble(elements[0]), Double.parseDouble(elements[1]))));
-        }
+    public LoadSummary parseEntity() throws IOException {
+        return this.loader.load(new File(Objects.requireNonNull(getClass().getClassLoader().getResource("files/robots.txt")).
+                getFile()).toPath(), this.environment);
     }
 
     /**
@@ -71,14 +70,11 @@ public class Controller {
      * Parses entity information from a specified file and adds entities to the environment.
      *
      * @param filePath The path of the file containing entity information.
+     * @return The summary of the load of the file.
      * @throws IOException If an I/O error occurs.
      */
-    public void parseEntityFromFile(String filePath) throws IOException {
-        List<String> lines = Files.readAllLines(Path.of(filePath));
-        for (String line : lines) {
-            String[] elements = line.trim().toUpperCase().split(" ");
-            this.environment.addEntity(new Robot(new Point(Double.parseDouble(elements[0]), Double.parseDouble(elements[1]))));
-        }
+    public LoadSummary parseEntityFromFile(String filePath) throws IOException {
+        return this.loader.load(Path.of(filePath), this.environment);
     }
 
     /**
@@ -124,6 +120,15 @@ public class Controller {
         this.environment.addShape(shape);
     }
 
+    /**
+     * Retrieves the environment managed by the controller.
+     *
+     * @return The environment managed by the controller.
+     */
+    public Environment getEnvironment() {
+        return this.environment;
+    }
+
     /**
      * Retrieves a list of entities in the environment.
      *
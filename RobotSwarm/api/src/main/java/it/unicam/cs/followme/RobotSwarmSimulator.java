@@ -1,13 +1,29 @@
 package it.unicam.cs.followme;
 
+import it.unicam.cs.followme.command.Program;
 import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.Environment;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.trace.TickListener;
+import it.unicam.cs.followme.trace.TraceSink;
+import it.unicam.cs.followme.util.SplitMix64;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Simulator implementation for simulating the behavior of a robot swarm.
+ * A parallel simulator steps the entities on a fork/join pool over a double-buffered
+ * environment, so the outcome of a step does not depend on the order of the entities
+ * nor on the number of threads. The pool is owned by the simulator and shut down when
+ * the simulator is closed.
  */
-public class RobotSwarmSimulator implements Simulator {
+public class RobotSwarmSimulator implements Simulator, AutoCloseable {
 
     private double time;
 
@@ -17,6 +33,16 @@ public class RobotSwarmSimulator implements Simulator {
 
     private final List<Entity> entities;
 
+    private final Environment environment;
+
+    private final ForkJoinPool pool;
+
+    private TraceSink trace = TraceSink.NO_OP;
+
+    private TickListener listener = TickListener.NO_OP;
+
+    private long tick;
+
     /**
      * Constructs a RobotSwarmSimulator with the specified list of entities.
      *
@@ -27,6 +53,45 @@ public class RobotSwarmSimulator implements Simulator {
         this.currentTime = 0;
         this.time = 0;
         this.entities = entities;
+        this.environment = null;
+        this.pool = null;
+    }
+
+    /**
+     * Constructs a RobotSwarmSimulator over the entities of an environment.
+     * Every step is enclosed in a tick of the environment, so the entities iterate
+     * stable views of it and changes to the environment are applied between steps.
+     *
+     * @param environment The environment containing the robot swarm.
+     */
+    public RobotSwarmSimulator(Environment environment) {
+        this.dt = 0;
+        this.currentTime = 0;
+        this.time = 0;
+        this.entities = environment.getEntities();
+        this.environment = environment;
+        this.pool = null;
+    }
+
+    /**
+     * Constructs a parallel RobotSwarmSimulator over the entities of an environment.
+     * The environment is made double-buffered, and every step executes the entities on
+     * a fork/join pool with the given parallelism, which is shut down when the simulator is closed.
+     *
+     * @param environment The environment containing the robot swarm.
+     * @param parallelism The number of threads stepping the entities.
+     * @throws IllegalArgumentException If the parallelism is not positive.
+     */
+    public RobotSwarmSimulator(Environment environment, int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("The parallelism must be positive.");
+        this.dt = 0;
+        this.currentTime = 0;
+        this.time = 0;
+        this.entities = environment.getEntities();
+        this.environment = environment;
+        this.environment.setDoubleBuffered(true);
+        this.pool = new ForkJoinPool(parallelism);
     }
 
     /**
@@ -38,19 +103,237 @@ public class RobotSwarmSimulator implements Simulator {
      */
     @Override
     public void simulate(double dt, double time) {
+        this.configure(dt, time);
+        if (!this.hasDone())
+            this.tick();
+    }
+
+    /**
+     * Executes up to a number of steps of the simulation, validating the arguments once.
+     *
+     * @param dt    The time step for each simulation step.
+     * @param time  The total simulation time.
+     * @param steps The maximum number of steps to execute.
+     * @return The summary of the executed steps.
+     * @throws IllegalArgumentException If the provided time step, total time or number of steps is invalid.
+     */
+    @Override
+    public RunSummary step(double dt, double time, long steps) {
+        if (steps < 0)
+            throw new IllegalArgumentException("The number of steps cannot be negative.");
+        this.configure(dt, time);
+        long start = System.nanoTime();
+        long ticks = 0;
+        while (ticks < steps && !this.hasDone()) {
+            this.tick();
+            ticks++;
+        }
+        return new RunSummary(ticks, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Executes steps of the simulation until it completes, validating the arguments once.
+     *
+     * @param dt   The time step for each simulation step.
+     * @param time The total simulation time.
+     * @return The summary of the executed steps.
+     * @throws IllegalArgumentException If the provided time step or total time is invalid.
+     */
+    @Override
+    public RunSummary runUntilDone(double dt, double time) {
+        return this.step(dt, time, Long.MAX_VALUE);
+    }
+
+    /**
+     * Executes steps of the simulation until it completes or a wall-clock budget runs out,
+     * validating the arguments once.
+     *
+     * @param dt     The time step for each simulation step.
+     * @param time   The total simulation time.
+     * @param budget The wall-clock time after which no further step is started, unbounded if too long to count in nanoseconds.
+     * @return The summary of the executed steps.
+     * @throws IllegalArgumentException If the provided time step, total time or budget is invalid.
+     */
+    @Override
+    public RunSummary runFor(double dt, double time, Duration budget) {
+        if (budget.isNegative())
+            throw new IllegalArgumentException("The budget cannot be negative.");
+        this.configure(dt, time);
+        long nanos;
+        try {
+            nanos = budget.toNanos();
+        } catch (ArithmeticException e) {
+            nanos = Long.MAX_VALUE;
+        }
+        long start = System.nanoTime();
+        long deadline = start + nanos;
+        long ticks = 0;
+        while (!this.hasDone() && System.nanoTime() - deadline < 0) {
+            this.tick();
+            ticks++;
+        }
+        return new RunSummary(ticks, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Executes steps of the simulation until it completes, on a thread of the common fork/join pool.
+     *
+     * @param dt   The time step for each simulation step.
+     * @param time The total simulation time.
+     * @return A future completed with the summary of the executed steps, or exceptionally if the run fails.
+     * @throws IllegalArgumentException If the provided time step or total time is invalid.
+     */
+    @Override
+    public CompletableFuture<RunSummary> runAsync(double dt, double time) {
+        this.configure(dt, time);
+        return CompletableFuture.supplyAsync(() -> this.runUntilDone(dt, time));
+    }
+
+    private void configure(double dt, double time) {
         if (dt <= 0 || time < 0) {
             throw new IllegalArgumentException("The time entered for the simulation is invalid.");
         }
 
         this.dt = dt;
         this.time = time;
+    }
 
-        if (!this.hasDone()) {
-            this.entities.forEach(Entity::executeNextInstruction);
-            this.currentTime += this.dt;
+    /**
+     * Sets the sink receiving the trace of the run, for the entities currently simulated.
+     * Single entities can be traced by setting their own sink afterwards.
+     *
+     * @param sink The trace sink of the run, {@link TraceSink#NO_OP} to disable tracing.
+     */
+    @Override
+    public void setTraceSink(TraceSink sink) {
+        this.trace = sink == null ? TraceSink.NO_OP : sink;
+        for (Entity entity : this.entities)
+            entity.setTraceSink(this.trace);
+    }
+
+    /**
+     * Sets the listener notified with the state of the swarm after every tick.
+     *
+     * @param listener The tick listener of the run, {@link TickListener#NO_OP} to disable listening.
+     * @throws IllegalArgumentException If the simulator is not over a robot environment.
+     */
+    public void setTickListener(TickListener listener) {
+        if (listener != null && listener != TickListener.NO_OP && !(this.environment instanceof RobotEnvironment))
+            throw new IllegalArgumentException("Only simulations over a robot environment can be listened to.");
+        this.listener = listener == null ? TickListener.NO_OP : listener;
+    }
+
+    /**
+     * Seeds the run: every entity currently simulated receives its own random stream, split in
+     * order from a stream seeded with the given seed.
+     *
+     * @param seed The seed of the run.
+     */
+    @Override
+    public void setSeed(long seed) {
+        SplitMix64 root = new SplitMix64(seed);
+        for (Entity entity : this.entities)
+            entity.setRandom(root.split());
+    }
+
+    /**
+     * Gets the environment the simulator runs over.
+     *
+     * @return The environment of the simulator, null if it runs over a list of entities.
+     */
+    public Environment getEnvironment() {
+        return this.environment;
+    }
+
+    /**
+     * Writes a checkpoint of the simulation to a file: the clock of the simulator and the whole
+     * state of its environment. It must be called between steps, and every robot running a
+     * program must run the same instructions. Writing a checkpoint leaves the simulation unchanged,
+     * random streams included, so a seeded run goes on as if no checkpoint had been written.
+     *
+     * @param file The file receiving the checkpoint.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the simulator is not over a robot environment, the environment
+     *                                  holds entities other than robots, or robots run different programs.
+     */
+    public void checkpoint(Path file) throws IOException {
+        if (!(this.environment instanceof RobotEnvironment robotEnvironment))
+            throw new IllegalArgumentException("Only simulations over a robot environment can be checkpointed.");
+        new Checkpoint(robotEnvironment, this.tick, this.currentTime, this.dt, this.time).write(file);
+    }
+
+    /**
+     * Restores a simulation from a checkpoint, over a new environment rebuilt from it.
+     *
+     * @param file    The file containing the checkpoint.
+     * @param program The program the robots were running when the checkpoint was written.
+     * @return The simulator resuming the simulation.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is not a checkpoint, or it was written with another program.
+     */
+    public static RobotSwarmSimulator restore(Path file, Program program) throws IOException {
+        Checkpoint checkpoint = Checkpoint.read(file, program);
+        return new RobotSwarmSimulator(checkpoint.environment()).resume(checkpoint);
+    }
+
+    /**
+     * Restores a simulation from a checkpoint into a parallel simulator, over a new environment rebuilt from it.
+     *
+     * @param file        The file containing the checkpoint.
+     * @param program     The program the robots were running when the checkpoint was written.
+     * @param parallelism The number of threads stepping the entities.
+     * @return The simulator resuming the simulation, to be closed by the caller.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is not a checkpoint, it was written with another program,
+     *                                  or the parallelism is not positive.
+     */
+    public static RobotSwarmSimulator restore(Path file, Program program, int parallelism) throws IOException {
+        Checkpoint checkpoint = Checkpoint.read(file, program);
+        return new RobotSwarmSimulator(checkpoint.environment(), parallelism).resume(checkpoint);
+    }
+
+    private RobotSwarmSimulator resume(Checkpoint checkpoint) {
+        this.tick = checkpoint.tick();
+        this.currentTime = checkpoint.currentTime();
+        this.dt = checkpoint.dt();
+        this.time = checkpoint.time();
+        return this;
+    }
+
+    /**
+     * Executes one step of every entity. The tick of the environment is closed even if an entity
+     * throws, so the environment is left consistent and applies the changes requested meanwhile;
+     * the clock only advances when the step completes.
+     */
+    private void tick() {
+        if (this.trace != TraceSink.NO_OP)
+            this.trace.tickStarted(this.tick);
+        if (this.environment != null)
+            this.environment.tickStarted();
+        try {
+            if (this.pool != null)
+                this.pool.invoke(new Step(this.entities, 0, this.entities.size()));
+            else
+                this.entities.forEach(Entity::executeNextInstruction);
+        } finally {
+            if (this.environment != null)
+                this.environment.tickDone();
         }
+        this.tick++;
+        this.currentTime += this.dt;
+        if (this.listener != TickListener.NO_OP)
+            this.listener.tickDone(this.tick - 1, ((RobotEnvironment) this.environment).getState());
     }
 
+    /**
+     * Shuts down the fork/join pool of a parallel simulator, whose threads are released once the
+     * tick in progress, if any, completes. A closed parallel simulator cannot be stepped any more.
+     */
+    @Override
+    public void close() {
+        if (this.pool != null)
+            this.pool.shutdown();
+    }
 
     /**
      * Checks if the simulation has completed based on the current time and total simulation time.
@@ -61,4 +344,37 @@ public class RobotSwarmSimulator implements Simulator {
     public boolean hasDone() {
         return !(this.dt + this.currentTime <= time);
     }
+
+    /**
+     * Fork/join task executing the next instruction of a range of entities.
+     */
+    private static final class Step extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int THRESHOLD = 1024;
+
+        private final List<Entity> entities;
+
+        private final int from;
+
+        private final int to;
+
+        private Step(List<Entity> entities, int from, int to) {
+            this.entities = entities;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= THRESHOLD) {
+                for (int i = this.from; i < this.to; i++)
+                    this.entities.get(i).executeNextInstruction();
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new Step(this.entities, this.from, middle), new Step(this.entities, middle, this.to));
+            }
+        }
+    }
 }
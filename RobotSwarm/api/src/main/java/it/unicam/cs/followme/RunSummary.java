@@ -0,0 +1,22 @@
+package it.unicam.cs.followme;
+
+import java.time.Duration;
+
+/**
+ * Summary of a run of a simulator, made of the number of executed ticks and the wall-clock time they took.
+ *
+ * @param ticks   The number of ticks executed by the run.
+ * @param elapsed The wall-clock time taken by the run.
+ */
+public record RunSummary(long ticks, Duration elapsed) {
+
+    /**
+     * Gets the number of ticks executed per second of wall-clock time.
+     *
+     * @return The tick throughput of the run, 0 if the run took no measurable time.
+     */
+    public double ticksPerSecond() {
+        long nanos = this.elapsed.toNanos();
+        return nanos == 0 ? 0 : this.ticks * 1e9 / nanos;
+    }
+}
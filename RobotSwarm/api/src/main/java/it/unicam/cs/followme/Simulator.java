@@ -1,5 +1,9 @@
 package it.unicam.cs.followme;
 
+import it.unicam.cs.followme.trace.TraceSink;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface representing a simulator for simulating the behavior of entities.
  */
@@ -19,4 +23,58 @@ public interface Simulator {
      * @return True if the simulation has completed.
      */
     boolean hasDone();
+
+    /**
+     * Executes up to a number of steps of the simulation, stopping early if it completes.
+     *
+     * @param dt    The time step for each simulation step.
+     * @param time  The total simulation time.
+     * @param steps The maximum number of steps to execute.
+     * @return The summary of the executed steps.
+     */
+    RunSummary step(double dt, double time, long steps);
+
+    /**
+     * Executes steps of the simulation until it completes.
+     *
+     * @param dt   The time step for each simulation step.
+     * @param time The total simulation time.
+     * @return The summary of the executed steps.
+     */
+    RunSummary runUntilDone(double dt, double time);
+
+    /**
+     * Executes steps of the simulation until it completes or a wall-clock budget runs out.
+     *
+     * @param dt     The time step for each simulation step.
+     * @param time   The total simulation time.
+     * @param budget The wall-clock time after which no further step is started.
+     * @return The summary of the executed steps.
+     */
+    RunSummary runFor(double dt, double time, Duration budget);
+
+    /**
+     * Executes steps of the simulation until it completes, on another thread.
+     *
+     * @param dt   The time step for each simulation step.
+     * @param time The total simulation time.
+     * @return A future completed with the summary of the executed steps.
+     */
+    CompletableFuture<RunSummary> runAsync(double dt, double time);
+
+    /**
+     * Sets the sink receiving the trace of the run, for the entities currently simulated.
+     *
+     * @param sink The trace sink of the run, {@link TraceSink#NO_OP} to disable tracing.
+     */
+    void setTraceSink(TraceSink sink);
+
+    /**
+     * Seeds the run: every entity currently simulated receives its own random stream, split in
+     * order from a stream seeded with the given seed. Runs seeded alike over the same entities
+     * draw the same random values, whatever the parallelism.
+     *
+     * @param seed The seed of the run.
+     */
+    void setSeed(long seed);
 }
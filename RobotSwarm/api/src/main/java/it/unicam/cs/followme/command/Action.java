@@ -0,0 +1,27 @@
+package it.unicam.cs.followme.command;
+
+import it.unicam.cs.followme.models.Entity;
+
+/**
+ * Interface defining a command that acts on an entity in a single step.
+ * Actions hold no execution state, so a single instance is shared by every entity running a program.
+ */
+public interface Action extends Command {
+
+    /**
+     * Executes the action on the specified entity.
+     *
+     * @param robot The entity on which the action is to be executed.
+     */
+    void execute(Entity robot);
+
+    /**
+     * Compiles the action into a single instruction executing it.
+     *
+     * @param builder The builder of the program the action belongs to.
+     */
+    @Override
+    default void compile(ProgramBuilder builder) {
+        builder.action(this);
+    }
+}
@@ -1,19 +1,16 @@
 package it.unicam.cs.followme.command;
 
-import it.unicam.cs.followme.models.Entity;
-
 /**
- * Interface defining a command to be executed by an entity.
+ * Interface defining a command of a program, which is compiled into the flat instructions of a {@link Program}.
  */
 public interface Command {
 
     /**
-     * Executes the command on the specified entity.
+     * Compiles the command, appending its instructions to a program being built.
      *
-     * @param robot The entity on which the command is to be executed.
-     * @return true if the command execution is successful, false otherwise.
+     * @param builder The builder of the program the command belongs to.
      */
-    boolean execute(Entity robot);
+    void compile(ProgramBuilder builder);
 
     /**
      * Returns a string representation of the command.
@@ -22,4 +19,3 @@ public interface Command {
      */
     String toString();
 }
-
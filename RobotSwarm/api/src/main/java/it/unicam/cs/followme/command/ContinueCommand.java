@@ -1,14 +1,11 @@
 package it.unicam.cs.followme.command;
 
-import it.unicam.cs.followme.models.Entity;
-
 /**
  * Represents a command that continue performing a move for a set duration.
  */
 public class ContinueCommand implements Command {
 
-    private int seconds;
-    private int interactions;
+    private final int seconds;
 
     /**
      * Constructs a ContinueCommand with the specified duration in seconds.
@@ -20,36 +17,17 @@ public class ContinueCommand implements Command {
         if (seconds < 0)
             throw new IllegalArgumentException("Seconds cannot be negative");
         this.seconds = seconds;
-        this.interactions = 0;
     }
 
     /**
-     * Executes the continue command on the given entity.
+     * Compiles the continue command into instructions moving the entity once per step for the specified duration.
+     * The steps left are kept on the loop stack of the entity.
      *
-     * @param robot The entity on which the command is to be executed.
-     * @return true or false based on the command execution.
+     * @param builder The builder of the program the command belongs to.
      */
     @Override
-    public boolean execute(Entity robot) {
-        if (!hasDone()) {
-            robot.move();
-            this.interactions++;
-            return false;
-        }
-        return true;
-    }
-
-    /**
-     * Checks if the command has been executed for the specified duration.
-     *
-     * @return true if the duration has been reached, false otherwise.
-     */
-    private boolean hasDone() {
-        if (this.interactions == this.seconds) {
-            this.interactions = 0;
-            return true;
-        }
-        return false;
+    public void compile(ProgramBuilder builder) {
+        builder.continueFor(this.seconds);
     }
 
     /**
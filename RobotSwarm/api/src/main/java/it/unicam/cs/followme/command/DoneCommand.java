@@ -1,7 +1,5 @@
 package it.unicam.cs.followme.command;
 
-import it.unicam.cs.followme.models.Entity;
-
 /**
  * Represents a command that marks an iterative command as completed without executing any action.
  */
@@ -19,14 +17,13 @@ public class DoneCommand implements Command {
     }
 
     /**
-     * Executes the done command, marking the referenced command as completed without performing any action.
+     * Compiles the done command, which emits no instruction: the iterative command it marks
+     * as completed closes its own loop.
      *
-     * @param robot The entity on which the command is to be executed.
-     * @return true, indicating the command execution is complete.
+     * @param builder The builder of the program the command belongs to.
      */
     @Override
-    public boolean execute(Entity robot) {
-        return true;
+    public void compile(ProgramBuilder builder) {
     }
 
     /**
@@ -39,4 +36,3 @@ public class DoneCommand implements Command {
         return "DONE COMMAND";
     }
 }
-
@@ -1,104 +1,90 @@
 package it.unicam.cs.followme.command;
 
+import it.unicam.cs.followme.models.Centroid;
 import it.unicam.cs.followme.models.Entity;
-import it.unicam.cs.followme.util.Direction;
-import it.unicam.cs.followme.util.DirectionCalculator;
-import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.models.LabelTable;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a command that instructs an entity to follow a specific direction based on common signal.
  */
-public class FollowCommand implements Command {
+public class FollowCommand implements Action {
 
     private double dist;
-    private String label;
+    private final LabelTable labels;
+    private int label;
     private double speed;
 
     /**
      * Constructs a FollowCommand with the specified label, distance, and speed.
+     * The label is interned in a label table.
      *
      * @param label The label associated with the command.
      * @param dist The distance within which neighbors and common signals are considered.
      * @param speed The speed at which the entity should follow the direction.
+     * @param labels The label table of the environment the command runs in.
      */
-    public FollowCommand(String label, double dist, double speed) {
+    public FollowCommand(String label, double dist, double speed, LabelTable labels) {
         this.dist = dist;
-        this.label = label;
+        this.labels = labels;
+        this.label = labels.intern(label);
         this.speed = speed;
     }
 
     /**
-     * Executes the follow command, instructing the entity to follow a specific direction.
+     * Executes the follow command, instructing the entity to move towards the average position
+     * of the entities signaling the label within the distance, or randomly if there are none.
+     * The average position is read from the per-cell label aggregates of the environment, so
+     * only the cells crossed by the boundary of the distance are scanned entity by entity.
      *
      * @param robot The entity on which the command is to be executed.
-     * @return true, indicating the command execution is complete.
      */
     @Override
-    public boolean execute(Entity robot) {
-        List<Entity> neighbours = robot.getNeighbors(this.dist);
-        List<Entity> commonSignal = robot.getCommonSignal();
+    public void execute(Entity robot) {
+        Centroid centroid = robot.getSignalCentroid(this.label, this.dist);
 
         robot.setSpeed(this.speed);
-        robot.setDirection(this.randomMove(robot));
-
-        if (!neighbours.isEmpty() && !commonSignal.isEmpty()) {
-            List<Entity> intersection = new ArrayList<>(neighbours);
-            intersection.retainAll(commonSignal);
-
-            if (!intersection.isEmpty()) {
-                robot.setDirection(this.follow(intersection, robot));
-            }
-        }
+        if (centroid.getCount() > 0)
+            robot.setDirectionTowards(centroid.getX(), centroid.getY());
+        else
+            this.randomMove(robot);
         robot.move();
-        return true;
+    }
+
+    /**
+     * Compiles the command into a single instruction executing it, binding the program to the label table of the command.
+     *
+     * @param builder The builder of the program the command belongs to.
+     */
+    @Override
+    public void compile(ProgramBuilder builder) {
+        builder.useLabels(this.labels);
+        builder.action(this);
     }
 
     /**
      * Generates a random double value within the specified range.
      *
+     * @param random The random stream the value is drawn from.
      * @param first The lower bound of the range.
      * @param second The upper bound of the range.
      * @return A random double within the specified range.
      */
-    public double randomGenerator(double first, double second) {
-        Random rand = new Random();
+    public double randomGenerator(RandomGenerator random, double first, double second) {
         double min = Math.min(first, second);
         double max = Math.max(first, second);
-        return min + (max - min) * rand.nextDouble();
-    }
-
-    /**
-     * Calculates the direction for the entity to follow based on the average position of entities in the intersection.
-     *
-     * @param intersection The list of entities that are both neighbors and in the common signal.
-     * @param robot The entity on which the command is being executed.
-     * @return The calculated direction for the entity to follow.
-     */
-    private Direction follow(List<Entity> intersection, Entity robot) {
-        Point mediumPoint = new Point(0, 0);
-        for (Entity entity : intersection) {
-            mediumPoint.setX(mediumPoint.getX() + entity.getPosition().getX());
-            mediumPoint.setY(mediumPoint.getY() + entity.getPosition().getY());
-        }
-        mediumPoint.setX(mediumPoint.getX() / intersection.size());
-        mediumPoint.setY(mediumPoint.getY() / intersection.size());
-        return DirectionCalculator.calculateDirection(robot.getPosition(), mediumPoint);
+        return min + (max - min) * random.nextDouble();
     }
 
     /**
      * Generates a random move for the entity within the specified distance range.
      *
      * @param robot The entity on which the command is being executed.
-     * @return The calculated direction for the entity to follow.
      */
-    private Direction randomMove(Entity robot) {
-        Point rand = new Point(this.randomGenerator(-this.dist, this.dist),
-                this.randomGenerator(-this.dist, this.dist));
-        return DirectionCalculator.calculateDirection(robot.getPosition(), rand);
+    private void randomMove(Entity robot) {
+        robot.setDirectionTowards(this.randomGenerator(robot.getRandom(), -this.dist, this.dist),
+                this.randomGenerator(robot.getRandom(), -this.dist, this.dist));
     }
 
     /**
@@ -1,7 +1,5 @@
 package it.unicam.cs.followme.command;
 
-import it.unicam.cs.followme.models.Entity;
-
 import java.util.ArrayList;
 
 /**
@@ -10,43 +8,24 @@ import java.util.ArrayList;
 public class ForeverCommand implements IterativeCommand {
 
     private ArrayList<Command> commands;
-    private int programCounter;
 
     /**
-     * Constructs a ForeverCommand with an empty list of commands and initializes the program counter.
+     * Constructs a ForeverCommand with an empty list of commands.
      */
     public ForeverCommand() {
-        this.programCounter = 0;
         this.commands = new ArrayList<>();
     }
 
     /**
-     * Executes the forever command by repeatedly executing the sequence of commands.
+     * Compiles the forever command into a loop jumping back to the start of the sequence of commands.
      *
-     * @param robot The entity on which the command is to be executed.
-     * @return false, as the command is designed to run indefinitely.
+     * @param builder The builder of the program the command belongs to.
      */
     @Override
-    public boolean execute(Entity robot) {
-        boolean result;
-        if (!this.hasDone()) {
-            if (this.commands.size() == this.programCounter)
-                this.programCounter = 0;
-            result = this.commands.get(this.programCounter).execute(robot);
-            System.out.println(this.commands.get(this.programCounter).toString());
-            if (result) {
-                this.programCounter++;
-            }
-        }
-        return false;
-    }
-
-    /**
-     *
-     * @return false, as the forever command runs indefinitely.
-     */
-    private boolean hasDone() {
-        return false;
+    public void compile(ProgramBuilder builder) {
+        builder.beginForever();
+        this.commands.forEach(command -> command.compile(builder));
+        builder.end();
     }
 
     /**
@@ -68,4 +47,3 @@ public class ForeverCommand implements IterativeCommand {
         return "FOREVER COMMAND";
     }
 }
-
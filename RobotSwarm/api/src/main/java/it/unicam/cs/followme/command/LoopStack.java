@@ -0,0 +1,88 @@
+package it.unicam.cs.followme.command;
+
+import java.util.Arrays;
+
+/**
+ * Stack of the loop counters of an entity running a {@link Program}.
+ * Together with the program counter it is the whole execution state of the entity.
+ */
+public final class LoopStack {
+
+    private int[] counters;
+
+    private int depth;
+
+    /**
+     * Constructs an empty stack able to hold the counters of a program.
+     *
+     * @param capacity The maximum nesting depth of the counters of the program.
+     */
+    public LoopStack(int capacity) {
+        this.counters = new int[capacity];
+        this.depth = 0;
+    }
+
+    /**
+     * Gets the number of counters in the stack.
+     *
+     * @return The number of counters in the stack.
+     */
+    public int depth() {
+        return this.depth;
+    }
+
+    /**
+     * Gets the counter at a given position from the bottom of the stack.
+     *
+     * @param index The position of the counter, 0 being the bottom of the stack.
+     * @return The counter at the given position.
+     */
+    public int get(int index) {
+        return this.counters[index];
+    }
+
+    /**
+     * Removes every counter and makes room for the counters of a program.
+     *
+     * @param capacity The maximum nesting depth of the counters of the program.
+     */
+    public void reset(int capacity) {
+        if (this.counters.length < capacity)
+            this.counters = new int[capacity];
+        this.depth = 0;
+    }
+
+    /**
+     * Pushes a counter on the stack.
+     *
+     * @param counter The counter to be pushed.
+     */
+    public void push(int counter) {
+        if (this.depth == this.counters.length)
+            this.counters = Arrays.copyOf(this.counters, Math.max(1, 2 * this.depth));
+        this.counters[this.depth++] = counter;
+    }
+
+    /**
+     * Removes the counter on top of the stack.
+     */
+    public void pop() {
+        this.depth--;
+    }
+
+    /**
+     * Gets the counter on top of the stack.
+     *
+     * @return The counter on top of the stack.
+     */
+    public int peek() {
+        return this.counters[this.depth - 1];
+    }
+
+    /**
+     * Decrements the counter on top of the stack.
+     */
+    public void decrement() {
+        this.counters[this.depth - 1]--;
+    }
+}
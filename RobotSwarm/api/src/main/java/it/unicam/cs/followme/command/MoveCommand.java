@@ -1,13 +1,12 @@
 package it.unicam.cs.followme.command;
 
 import it.unicam.cs.followme.models.Entity;
-import it.unicam.cs.followme.util.DirectionCalculator;
 import it.unicam.cs.followme.util.Point;
 
 /**
  * Represents a command that instructs an entity to move towards a specific point at a given speed.
  */
-public class MoveCommand implements Command {
+public class MoveCommand implements Action {
 
     private final Point point;
     private final double speed;
@@ -27,13 +26,11 @@ public class MoveCommand implements Command {
      * Executes the move command, instructing the entity to move towards the specified point at the given speed.
      *
      * @param robot The entity on which the command is to be executed.
-     * @return true, indicating the command execution is complete.
      */
     @Override
-    public boolean execute(Entity robot) {
+    public void execute(Entity robot) {
         robot.setSpeed(this.speed);
-        robot.setDirection(DirectionCalculator.calculateDirection(robot.getPosition(), this.point));
-        return true;
+        robot.setDirectionTowards(this.point.getX(), this.point.getY());
     }
 
     /**
@@ -0,0 +1,238 @@
+package it.unicam.cs.followme.command;
+
+import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.LabelTable;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable program compiled into a flat array of instructions, with jump targets for the loops.
+ * A program holds no execution state: every entity running it owns a program counter and a
+ * {@link LoopStack}, so a single program can be shared by a whole swarm.
+ * Every step of an entity executes instructions up to the first one acting on the entity;
+ * loop bookkeeping does not take a step of its own.
+ * The labels of a program are identifiers of the label table of the environment it was parsed
+ * for, so it can only run in that environment.
+ */
+public final class Program {
+
+    /**
+     * Executes an action on the entity and ends the step.
+     */
+    public static final int ACTION = 0;
+
+    /**
+     * Pushes the number of steps of a CONTINUE on the loop stack.
+     */
+    public static final int CONTINUE_START = 1;
+
+    /**
+     * Moves the entity and ends the step while the counter on top of the loop stack is positive, pops it otherwise.
+     */
+    public static final int CONTINUE_STEP = 2;
+
+    /**
+     * Pushes the number of iterations of a REPEAT on the loop stack.
+     */
+    public static final int REPEAT_START = 3;
+
+    /**
+     * Enters the body of a REPEAT while the counter on top of the loop stack is positive, pops it and jumps past the loop otherwise.
+     */
+    public static final int REPEAT_TEST = 4;
+
+    /**
+     * Jumps past the loop if the entity is inside a shape with the label of an UNTIL, whose identifier is the operand, enters its body otherwise.
+     */
+    public static final int UNTIL_TEST = 5;
+
+    /**
+     * Jumps back to the test of a loop.
+     */
+    public static final int JUMP = 6;
+
+    private static final Program EMPTY = new ProgramBuilder().build();
+
+    private final int[] opcodes;
+
+    private final int[] operands;
+
+    private final int[] targets;
+
+    private final Action[] actions;
+
+    private final int maxDepth;
+
+    private final LabelTable labels;
+
+    Program(int[] opcodes, int[] operands, int[] targets, Action[] actions, int maxDepth, LabelTable labels) {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.targets = targets;
+        this.actions = actions;
+        this.maxDepth = maxDepth;
+        this.labels = labels;
+    }
+
+    /**
+     * Gets the program without instructions.
+     *
+     * @return The empty program.
+     */
+    public static Program empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles a sequence of commands into a program.
+     *
+     * @param commands The commands of the program.
+     * @return The compiled program.
+     */
+    public static Program compile(Collection<? extends Command> commands) {
+        ProgramBuilder builder = new ProgramBuilder();
+        for (Command command : commands)
+            command.compile(builder);
+        return builder.build();
+    }
+
+    /**
+     * Gets the number of instructions of the program.
+     *
+     * @return The number of instructions of the program.
+     */
+    public int length() {
+        return this.opcodes.length;
+    }
+
+    /**
+     * Gets the label table the identifiers of the labels of the program belong to.
+     *
+     * @return The label table of the program, null if the program uses no label.
+     */
+    public LabelTable getLabels() {
+        return this.labels;
+    }
+
+    /**
+     * Gets the maximum number of counters the program keeps on a loop stack.
+     *
+     * @return The maximum nesting depth of the loop counters.
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Gets the opcode of an instruction.
+     *
+     * @param pc The index of the instruction.
+     * @return The opcode of the instruction.
+     */
+    public int getOpcode(int pc) {
+        return this.opcodes[pc];
+    }
+
+    /**
+     * Gets a fingerprint of the instructions of the program, made of their opcodes, operands and
+     * jump targets and of the classes of their actions. The operand of an UNTIL enters it by the
+     * name of its label, so the same program parsed for another environment has the same fingerprint.
+     *
+     * @return The fingerprint of the program.
+     */
+    public long fingerprint() {
+        long fingerprint = mix(0xCBF29CE484222325L, this.opcodes.length);
+        for (int pc = 0; pc < this.opcodes.length; pc++) {
+            int operand = this.operands[pc];
+            if (this.opcodes[pc] == UNTIL_TEST && this.labels != null)
+                operand = this.labels.name(operand).hashCode();
+            fingerprint = mix(fingerprint, this.opcodes[pc]);
+            fingerprint = mix(fingerprint, operand);
+            fingerprint = mix(fingerprint, this.targets[pc]);
+            fingerprint = mix(fingerprint, this.actions[pc] == null ? 0 : this.actions[pc].getClass().getName().hashCode());
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Checks if this program is equal to another, that is made of the same instructions executing
+     * the same actions over the same label table, even if the two were compiled separately.
+     *
+     * @param obj The object to compare for equality.
+     * @return true if the programs are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+
+        Program other = (Program) obj;
+
+        return this.labels == other.labels && Arrays.equals(this.opcodes, other.opcodes)
+                && Arrays.equals(this.operands, other.operands) && Arrays.equals(this.targets, other.targets)
+                && Arrays.equals(this.actions, other.actions);
+    }
+
+    /**
+     * Generates a hash code for the program.
+     *
+     * @return The hash code of the program.
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.fingerprint());
+    }
+
+    /**
+     * Executes a step of an entity, starting from its program counter.
+     * The step ends after the first instruction acting on the entity, or after every instruction
+     * has been visited once, so that a loop with an empty body cannot stall the simulation.
+     *
+     * @param robot The entity running the program.
+     * @param pc    The program counter of the entity.
+     * @param stack The loop stack of the entity.
+     * @return The program counter of the entity after the step.
+     */
+    public int execute(Entity robot, int pc, LoopStack stack) {
+        for (int visited = 0; pc < this.opcodes.length && visited <= this.opcodes.length; visited++) {
+            switch (this.opcodes[pc]) {
+                case ACTION -> {
+                    this.actions[pc].execute(robot);
+                    return pc + 1;
+                }
+                case CONTINUE_START, REPEAT_START -> {
+                    stack.push(this.operands[pc]);
+                    pc++;
+                }
+                case CONTINUE_STEP -> {
+                    if (stack.peek() == 0) {
+                        stack.pop();
+                        pc++;
+                    } else {
+                        stack.decrement();
+                        robot.move();
+                        return pc;
+                    }
+                }
+                case REPEAT_TEST -> {
+                    if (stack.peek() == 0) {
+                        stack.pop();
+                        pc = this.targets[pc];
+                    } else {
+                        stack.decrement();
+                        pc++;
+                    }
+                }
+                case UNTIL_TEST -> pc = robot.isInsideAShape(this.operands[pc]) ? this.targets[pc] : pc + 1;
+                case JUMP -> pc = this.targets[pc];
+                default -> throw new IllegalArgumentException("Unknown opcode " + this.opcodes[pc] + ".");
+            }
+        }
+        return pc;
+    }
+
+    private static long mix(long fingerprint, int value) {
+        return (fingerprint ^ value) * 0x100000001B3L;
+    }
+}
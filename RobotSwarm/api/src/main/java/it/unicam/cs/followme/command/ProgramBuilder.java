@@ -0,0 +1,172 @@
+package it.unicam.cs.followme.command;
+
+import it.unicam.cs.followme.models.LabelTable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Builder of a {@link Program}, to which commands append their instructions when compiled.
+ * Loops are opened by one of the begin methods and closed by {@link #end()}, which emits the
+ * jump back to the test of the loop and patches the test to jump past it.
+ */
+public class ProgramBuilder {
+
+    private int[] opcodes;
+
+    private int[] operands;
+
+    private int[] targets;
+
+    private final List<Action> actions;
+
+    private int length;
+
+    private final Deque<Loop> loops;
+
+    private int depth;
+
+    private int maxDepth;
+
+    private LabelTable labels;
+
+    /**
+     * Constructs a builder of an empty program.
+     */
+    public ProgramBuilder() {
+        this.opcodes = new int[16];
+        this.operands = new int[16];
+        this.targets = new int[16];
+        this.actions = new ArrayList<>();
+        this.length = 0;
+        this.loops = new ArrayDeque<>();
+        this.depth = 0;
+        this.maxDepth = 0;
+    }
+
+    /**
+     * Appends an instruction executing an action.
+     *
+     * @param action The action to be executed.
+     */
+    public void action(Action action) {
+        this.emit(Program.ACTION, 0, action);
+    }
+
+    /**
+     * Appends the instructions moving the entity for a number of steps.
+     *
+     * @param seconds The number of steps the entity keeps moving.
+     * @throws IllegalArgumentException If the number of steps is negative.
+     */
+    public void continueFor(int seconds) {
+        if (seconds < 0)
+            throw new IllegalArgumentException("Seconds cannot be negative");
+        this.emit(Program.CONTINUE_START, seconds, null);
+        this.enter();
+        this.emit(Program.CONTINUE_STEP, 0, null);
+        this.depth--;
+    }
+
+    /**
+     * Opens a loop executing its body a number of times.
+     *
+     * @param n The number of iterations of the loop.
+     * @throws IllegalArgumentException If the number of iterations is negative.
+     */
+    public void beginRepeat(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Iterations cannot be negative");
+        this.emit(Program.REPEAT_START, n, null);
+        this.enter();
+        this.loops.push(new Loop(Program.REPEAT_TEST, this.emit(Program.REPEAT_TEST, 0, null)));
+    }
+
+    /**
+     * Binds the program to the label table the identifiers of its labels belong to.
+     * Every command using a label binds the program to its table when compiled.
+     *
+     * @param labels The label table of the commands of the program.
+     * @throws IllegalArgumentException If the program is already bound to another label table.
+     */
+    public void useLabels(LabelTable labels) {
+        if (this.labels != null && this.labels != labels)
+            throw new IllegalArgumentException("The commands of a program must use the same label table.");
+        this.labels = labels;
+    }
+
+    /**
+     * Opens a loop executing its body until the entity is inside a shape with a label, given by
+     * its identifier in the label table of the program.
+     *
+     * @param label The identifier of the label of the shape ending the loop.
+     */
+    public void beginUntil(int label) {
+        this.loops.push(new Loop(Program.UNTIL_TEST, this.emit(Program.UNTIL_TEST, label, null)));
+    }
+
+    /**
+     * Opens a loop executing its body forever.
+     */
+    public void beginForever() {
+        this.loops.push(new Loop(Program.JUMP, this.length));
+    }
+
+    /**
+     * Closes the innermost open loop.
+     *
+     * @throws IllegalArgumentException If no loop is open.
+     */
+    public void end() {
+        if (this.loops.isEmpty())
+            throw new IllegalArgumentException("COMMANDS ARE NOT BALANCED");
+        Loop loop = this.loops.pop();
+        int jump = this.emit(Program.JUMP, 0, null);
+        this.targets[jump] = loop.start();
+        if (loop.test() == Program.JUMP)
+            return;
+        if (loop.test() == Program.REPEAT_TEST)
+            this.depth--;
+        this.targets[loop.start()] = this.length;
+    }
+
+    /**
+     * Builds the program made of the instructions appended so far.
+     *
+     * @return The compiled program.
+     * @throws IllegalArgumentException If a loop has not been closed.
+     */
+    public Program build() {
+        if (!this.loops.isEmpty())
+            throw new IllegalArgumentException("COMMANDS ARE NOT BALANCED");
+        return new Program(Arrays.copyOf(this.opcodes, this.length), Arrays.copyOf(this.operands, this.length),
+                Arrays.copyOf(this.targets, this.length), this.actions.toArray(new Action[0]), this.maxDepth, this.labels);
+    }
+
+    private void enter() {
+        this.depth++;
+        this.maxDepth = Math.max(this.maxDepth, this.depth);
+    }
+
+    private int emit(int opcode, int operand, Action action) {
+        if (this.length == this.opcodes.length) {
+            this.opcodes = Arrays.copyOf(this.opcodes, 2 * this.length);
+            this.operands = Arrays.copyOf(this.operands, 2 * this.length);
+            this.targets = Arrays.copyOf(this.targets, 2 * this.length);
+        }
+        this.opcodes[this.length] = opcode;
+        this.operands[this.length] = operand;
+        this.actions.add(action);
+        return this.length++;
+    }
+
+    /**
+     * Open loop, made of the opcode of its test and the index of the instruction the loop jumps back to.
+     * A DO FOREVER loop has no test and is marked by the JUMP opcode.
+     */
+    private record Loop(int test, int start) {
+    }
+}
@@ -1,15 +1,13 @@
 package it.unicam.cs.followme.command;
 
 import it.unicam.cs.followme.models.Entity;
-import it.unicam.cs.followme.util.Direction;
-import it.unicam.cs.followme.util.DirectionCalculator;
 import it.unicam.cs.followme.util.Point;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a command that instructs an entity to make a random move within a specified range of points at a given speed.
  */
-public class RandomMoveCommand implements Command {
+public class RandomMoveCommand implements Action {
 
     private final Point point1;
     private final Point point2;
@@ -32,32 +30,28 @@ public class RandomMoveCommand implements Command {
      * Executes the random move command, instructing the entity to make a random move within the specified range.
      *
      * @param robot The entity on which the command is to be executed.
-     * @return true, indicating the command execution is complete.
      */
     @Override
-    public boolean execute(Entity robot) {
-        double x = this.randomGenerator(point1.getX(), point2.getX());
-        double y = this.randomGenerator(point1.getY(), point2.getY());
-        Point point = new Point(x, y);
-        Direction direction = DirectionCalculator.calculateDirection(robot.getPosition(), point);
+    public void execute(Entity robot) {
+        double x = this.randomGenerator(robot.getRandom(), point1.getX(), point2.getX());
+        double y = this.randomGenerator(robot.getRandom(), point1.getY(), point2.getY());
         robot.setSpeed(this.speed);
-        robot.setDirection(direction);
+        robot.setDirectionTowards(x, y);
         robot.move();
-        return true;
     }
 
     /**
      * Generates a random double value within the specified range.
      *
+     * @param random The random stream the value is drawn from.
      * @param first The lower bound of the range.
      * @param second The upper bound of the range.
      * @return A random double within the specified range.
      */
-    public double randomGenerator(double first, double second) {
-        Random rand = new Random();
+    public double randomGenerator(RandomGenerator random, double first, double second) {
         double min = Math.min(first, second);
         double max = Math.max(first, second);
-        return min + (max - min) * rand.nextDouble();
+        return min + (max - min) * random.nextDouble();
     }
 
     /**
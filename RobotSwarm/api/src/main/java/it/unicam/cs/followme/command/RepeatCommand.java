@@ -1,7 +1,5 @@
 package it.unicam.cs.followme.command;
 
-import it.unicam.cs.followme.models.Entity;
-
 import java.util.ArrayList;
 
 /**
@@ -10,9 +8,7 @@ import java.util.ArrayList;
 public class RepeatCommand implements IterativeCommand {
 
     private final int interaction;
-    private int counter;
     private ArrayList<Command> commands;
-    private int programCounter;
 
     /**
      * Constructs a RepeatCommand with the specified number of interactions.
@@ -21,42 +17,20 @@ public class RepeatCommand implements IterativeCommand {
      */
     public RepeatCommand(int n) {
         this.commands = new ArrayList<>();
-        this.programCounter = 0;
-        this.counter = 0;
         this.interaction = n;
     }
 
     /**
-     * Executes the repeat command by repeatedly executing the sequence of commands for the specified number of interactions.
+     * Compiles the repeat command into a loop executing the sequence of commands for the specified number of interactions.
+     * The iterations left are kept on the loop stack of the entity.
      *
-     * @param robot The entity on which the command is to be executed.
-     * @return true if the specified number of interactions is reached, false otherwise.
+     * @param builder The builder of the program the command belongs to.
      */
     @Override
-    public boolean execute(Entity robot) {
-        boolean result;
-        if (!this.hasDone()) {
-            if (this.commands.size() == this.programCounter)
-                this.programCounter = 0;
-
-            result = this.commands.get(this.programCounter).execute(robot);
-            System.out.println(this.commands.get(this.programCounter).toString());
-            if (result) {
-                this.programCounter++;
-            }
-            this.counter++;
-            return false;
-        }
-        return true;
-    }
-
-    /**
-     * Checks if the repeat command has completed the specified number of interactions.
-     *
-     * @return true if the specified number of interactions is reached, false otherwise.
-     */
-    private boolean hasDone() {
-        return counter == interaction;
+    public void compile(ProgramBuilder builder) {
+        builder.beginRepeat(this.interaction);
+        this.commands.forEach(command -> command.compile(builder));
+        builder.end();
     }
 
     /**
@@ -78,4 +52,3 @@ public class RepeatCommand implements IterativeCommand {
         return "REPEAT COMMAND";
     }
 }
-
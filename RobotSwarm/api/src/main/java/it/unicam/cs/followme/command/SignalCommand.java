@@ -1,34 +1,48 @@
 package it.unicam.cs.followme.command;
 
 import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.LabelTable;
 
 /**
  * Represents a command that signals an entity with a specified label.
  */
-public class SignalCommand implements Command {
+public class SignalCommand implements Action {
 
-    private final String label;
+    private final LabelTable labels;
+
+    private final int label;
 
     /**
-     * Constructs a SignalCommand with the specified label.
+     * Constructs a SignalCommand with the specified label, interned in a label table.
      *
      * @param label The label to be assigned to the entity when signaling.
+     * @param labels The label table of the environment the command runs in.
      */
-    public SignalCommand(String label) {
-        this.label = label;
+    public SignalCommand(String label, LabelTable labels) {
+        this.labels = labels;
+        this.label = labels.intern(label);
     }
 
     /**
      * Executes the signal command, assigning the specified label to the entity and signaling.
      *
      * @param robot The entity on which the command is to be executed.
-     * @return true, indicating the command execution is complete.
      */
     @Override
-    public boolean execute(Entity robot) {
+    public void execute(Entity robot) {
         robot.setLabel(label);
         robot.signal();
-        return true;
+    }
+
+    /**
+     * Compiles the command into a single instruction executing it, binding the program to the label table of the command.
+     *
+     * @param builder The builder of the program the command belongs to.
+     */
+    @Override
+    public void compile(ProgramBuilder builder) {
+        builder.useLabels(this.labels);
+        builder.action(this);
     }
 
     /**
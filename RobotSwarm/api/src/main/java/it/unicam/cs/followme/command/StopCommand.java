@@ -5,18 +5,16 @@ import it.unicam.cs.followme.models.Entity;
 /**
  * Represents a command that instructs an entity to stop its current movement.
  */
-public class StopCommand implements Command {
+public class StopCommand implements Action {
 
     /**
      * Executes the stop command, instructing the entity to stop its current movement.
      *
      * @param robot The entity on which the command is to be executed.
-     * @return true, indicating the command execution is complete.
      */
     @Override
-    public boolean execute(Entity robot) {
+    public void execute(Entity robot) {
         robot.stop();
-        return true;
     }
 
     /**
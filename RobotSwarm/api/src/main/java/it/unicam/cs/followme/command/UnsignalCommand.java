@@ -1,34 +1,48 @@
 package it.unicam.cs.followme.command;
 
 import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.LabelTable;
 
 /**
  * Represents a command that unsignals an entity with a specified label.
  */
-public class UnsignalCommand implements Command {
+public class UnsignalCommand implements Action {
 
-    private final String label;
+    private final LabelTable labels;
+
+    private final int label;
 
     /**
-     * Constructs an UnsignalCommand with the specified label.
+     * Constructs an UnsignalCommand with the specified label, interned in a label table.
      *
      * @param label The label associated with the entity to be unsignaled.
+     * @param labels The label table of the environment the command runs in.
      */
-    public UnsignalCommand(String label) {
-        this.label = label;
+    public UnsignalCommand(String label, LabelTable labels) {
+        this.labels = labels;
+        this.label = labels.intern(label);
     }
 
     /**
      * Executes the unsignal command, removing the specified label from the entity's signaling state.
      *
      * @param robot The entity on which the command is to be executed.
-     * @return true, indicating the command execution is complete.
      */
     @Override
-    public boolean execute(Entity robot) {
-        if (this.label.equals(robot.signal()))
+    public void execute(Entity robot) {
+        if (this.label == robot.signalId())
             robot.unsignal();
-        return true;
+    }
+
+    /**
+     * Compiles the command into a single instruction executing it, binding the program to the label table of the command.
+     *
+     * @param builder The builder of the program the command belongs to.
+     */
+    @Override
+    public void compile(ProgramBuilder builder) {
+        builder.useLabels(this.labels);
+        builder.action(this);
     }
 
     /**
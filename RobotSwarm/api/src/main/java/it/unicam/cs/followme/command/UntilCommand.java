@@ -1,6 +1,6 @@
 package it.unicam.cs.followme.command;
 
-import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.LabelTable;
 
 import java.util.ArrayList;
 
@@ -10,50 +10,33 @@ import java.util.ArrayList;
 public class UntilCommand implements IterativeCommand {
 
     private ArrayList<Command> commands;
-    private int programCounter;
-    private final String label;
+    private final LabelTable labels;
+    private final int label;
 
     /**
-     * Constructs an UntilCommand with the specified label for the condition.
+     * Constructs an UntilCommand with the specified label for the condition, interned in a label table.
      *
      * @param label The label representing the condition to be checked for termination.
+     * @param labels The label table of the environment the command runs in.
      */
-    public UntilCommand(String label) {
+    public UntilCommand(String label, LabelTable labels) {
         this.commands = new ArrayList<>();
-        this.programCounter = 0;
-        this.label = label;
+        this.labels = labels;
+        this.label = labels.intern(label);
     }
 
     /**
-     * Executes the until command by repeatedly executing the sequence of commands until the specified condition is met.
+     * Compiles the until command into a loop executing the sequence of commands until the entity
+     * is inside a shape with the specified label.
      *
-     * @param robot The entity on which the command is to be executed.
-     * @return true if the specified condition is met, false otherwise.
+     * @param builder The builder of the program the command belongs to.
      */
     @Override
-    public boolean execute(Entity robot) {
-        boolean result;
-        if (!this.hasDone(robot)) {
-            if (this.commands.size() == this.programCounter)
-                this.programCounter = 0;
-            result = this.commands.get(this.programCounter).execute(robot);
-            System.out.println(this.commands.get(this.programCounter).toString());
-            if (result) {
-                this.programCounter++;
-            }
-            return false;
-        }
-        return true;
-    }
-
-    /**
-     * Checks if the until command has met the specified condition.
-     *
-     * @param robot The entity on which the command is being executed.
-     * @return true if the specified condition is met, false otherwise.
-     */
-    public boolean hasDone(Entity robot) {
-        return robot.isInsideAShape(this.label);
+    public void compile(ProgramBuilder builder) {
+        builder.useLabels(this.labels);
+        builder.beginUntil(this.label);
+        this.commands.forEach(command -> command.compile(builder));
+        builder.end();
     }
 
     /**
@@ -75,4 +58,3 @@ public class UntilCommand implements IterativeCommand {
         return "UNTIL COMMAND";
     }
 }
-
@@ -0,0 +1,129 @@
+package it.unicam.cs.followme.ensemble;
+
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.RunSummary;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.models.Centroid;
+import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.utilities.ShapeData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runner of ensembles of independent simulations, such as the variants of a parameter sweep.
+ * Every run builds its own environment and sequential simulator over the scenario it shares with
+ * the other runs, and the runs are executed concurrently on a fixed number of threads, so an
+ * ensemble of many small runs keeps every thread busy without any run waiting for another.
+ * A run is reproducible: its outcome depends only on its variant, whatever the number of threads.
+ */
+public class Ensemble {
+
+    private final int parallelism;
+
+    /**
+     * Constructs a runner executing as many runs at the same time as there are processors.
+     */
+    public Ensemble() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a runner executing up to the given number of runs at the same time.
+     *
+     * @param parallelism The number of threads executing the runs.
+     * @throws IllegalArgumentException If the parallelism is not positive.
+     */
+    public Ensemble(int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("The parallelism must be positive.");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Executes every variant until its simulation completes.
+     *
+     * @param variants The variants to be executed.
+     * @return The results of the runs, in the order of the variants.
+     * @throws IllegalStateException If the thread is interrupted while waiting for the runs.
+     */
+    public List<RunResult> run(List<Variant> variants) {
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "ensemble-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<RunResult>> futures = new ArrayList<>(variants.size());
+            for (Variant variant : variants)
+                futures.add(executor.submit(() -> run(variant)));
+            List<RunResult> results = new ArrayList<>(variants.size());
+            for (Future<RunResult> future : futures)
+                results.add(future.get());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The ensemble was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Formats the results of an ensemble as a comma-separated table, starting with its header.
+     *
+     * @param results The results of the runs.
+     * @return The table of the results.
+     */
+    public static String toTable(List<RunResult> results) {
+        StringBuilder table = new StringBuilder(RunResult.HEADER).append(System.lineSeparator());
+        for (RunResult result : results)
+            table.append(result.toRow()).append(System.lineSeparator());
+        return table.toString();
+    }
+
+    /**
+     * Executes a single variant on the calling thread, in an environment sharing the label table of the program.
+     *
+     * @param variant The variant to be executed.
+     * @return The result of the run.
+     */
+    public static RunResult run(Variant variant) {
+        Scenario scenario = variant.scenario();
+        Program program = scenario.program();
+        RobotEnvironment environment = program.getLabels() == null
+                ? new RobotEnvironment() : new RobotEnvironment(program.getLabels());
+        environment.fitCellSize(scenario.followRadius());
+        for (ShapeData shape : scenario.shapes())
+            environment.addShape(shape);
+        SplittableRandom random = new SplittableRandom(variant.seed());
+        double[] x = new double[variant.robots()];
+        double[] y = new double[variant.robots()];
+        for (int i = 0; i < variant.robots(); i++) {
+            x[i] = random.nextDouble() * 200 - 100;
+            y[i] = random.nextDouble() * 200 - 100;
+        }
+        environment.addRobots(x, y, variant.robots());
+        for (Entity entity : environment.getEntities())
+            entity.addProgram(program);
+        RobotSwarmSimulator simulator = new RobotSwarmSimulator(environment);
+        simulator.setSeed(random.nextLong());
+        RunSummary summary = simulator.runUntilDone(variant.dt(), variant.time());
+        Centroid centroid = new Centroid();
+        for (Entity entity : environment.getEntities())
+            centroid.add(entity.getX(), entity.getY());
+        return new RunResult(variant, summary, centroid.getX(), centroid.getY());
+    }
+}
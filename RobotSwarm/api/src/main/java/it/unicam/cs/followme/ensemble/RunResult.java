@@ -0,0 +1,32 @@
+package it.unicam.cs.followme.ensemble;
+
+import it.unicam.cs.followme.RunSummary;
+
+/**
+ * Result of a run of an ensemble, made of its parameters, the summary of its ticks and the centroid
+ * of the robots when the run is done.
+ *
+ * @param variant   The parameters of the run.
+ * @param summary   The summary of the ticks of the run.
+ * @param centroidX The x-coordinate of the centroid of the robots at the end of the run, NaN without robots.
+ * @param centroidY The y-coordinate of the centroid of the robots at the end of the run, NaN without robots.
+ */
+public record RunResult(Variant variant, RunSummary summary, double centroidX, double centroidY) {
+
+    /**
+     * Header of the table of the results, matching {@link #toRow()}.
+     */
+    public static final String HEADER = "scenario,robots,seed,dt,time,ticks,elapsed_ms,ticks_per_s,centroid_x,centroid_y";
+
+    /**
+     * Gets the result as a comma-separated row of the table of the results.
+     *
+     * @return The row of the result.
+     */
+    public String toRow() {
+        return String.join(",", this.variant.scenario().name(), String.valueOf(this.variant.robots()),
+                String.valueOf(this.variant.seed()), String.valueOf(this.variant.dt()), String.valueOf(this.variant.time()),
+                String.valueOf(this.summary.ticks()), String.valueOf(this.summary.elapsed().toMillis()),
+                String.valueOf(this.summary.ticksPerSecond()), String.valueOf(this.centroidX), String.valueOf(this.centroidY));
+    }
+}
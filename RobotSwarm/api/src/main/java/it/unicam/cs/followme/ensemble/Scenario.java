@@ -0,0 +1,60 @@
+package it.unicam.cs.followme.ensemble;
+
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.models.ParserHandler;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.utilities.FollowMeParser;
+import it.unicam.cs.followme.utilities.FollowMeParserException;
+import it.unicam.cs.followme.utilities.ShapeData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Program and shapes of a simulation, parsed once and shared by every run of an ensemble.
+ * The compiled program holds no execution state and the shapes are not modified by the
+ * environments they are added to, so a scenario can be used by many runs at the same time.
+ * The labels of the program and of the shapes are interned in the label table of the program,
+ * which the environments of the runs share.
+ *
+ * @param name         The name of the scenario, reported in the results of its runs.
+ * @param program      The compiled program run by every robot.
+ * @param shapes       The shapes of the environment.
+ * @param followRadius The largest FOLLOW radius of the program, to which the spatial index is fitted.
+ */
+public record Scenario(String name, Program program, List<ShapeData> shapes, double followRadius) {
+
+    /**
+     * Constructs a scenario, copying the list of shapes.
+     *
+     * @param name         The name of the scenario, reported in the results of its runs.
+     * @param program      The compiled program run by every robot.
+     * @param shapes       The shapes of the environment.
+     * @param followRadius The largest FOLLOW radius of the program, to which the spatial index is fitted.
+     */
+    public Scenario {
+        shapes = List.copyOf(shapes);
+    }
+
+    /**
+     * Parses a scenario from a shape file and a program file.
+     *
+     * @param name    The name of the scenario.
+     * @param shapes  The file containing the shapes.
+     * @param program The file containing the program.
+     * @return The parsed scenario.
+     * @throws IOException             If a file cannot be read.
+     * @throws FollowMeParserException If a file cannot be parsed.
+     */
+    public static Scenario parse(String name, Path shapes, Path program) throws IOException, FollowMeParserException {
+        RobotEnvironment environment = new RobotEnvironment();
+        ParserHandler handler = new ParserHandler(environment);
+        FollowMeParser parser = new FollowMeParser(handler);
+        List<ShapeData> parsedShapes = parser.parseEnvironment(shapes);
+        parser.parseRobotProgram(program);
+        for (ShapeData shape : parsedShapes)
+            environment.getLabels().intern(shape.label());
+        return new Scenario(name, handler.getProgram(), parsedShapes, handler.getFollowRadius());
+    }
+}
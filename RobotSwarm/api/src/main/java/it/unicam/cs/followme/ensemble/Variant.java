@@ -0,0 +1,32 @@
+package it.unicam.cs.followme.ensemble;
+
+/**
+ * Parameters of a single run of an ensemble: the scenario it runs, the number of robots, which are
+ * placed at random positions of the square between -100 and 100 like robots created without a
+ * position, the seed of the positions and of the random streams of the robots, and the time of the run.
+ *
+ * @param scenario The scenario of the run.
+ * @param robots   The number of robots of the run.
+ * @param seed     The seed of the run.
+ * @param dt       The time step of the run.
+ * @param time     The total simulation time of the run.
+ */
+public record Variant(Scenario scenario, int robots, long seed, double dt, double time) {
+
+    /**
+     * Constructs the parameters of a run.
+     *
+     * @param scenario The scenario of the run.
+     * @param robots   The number of robots of the run.
+     * @param seed     The seed of the run.
+     * @param dt       The time step of the run.
+     * @param time     The total simulation time of the run.
+     * @throws IllegalArgumentException If the number of robots is negative or the times are invalid.
+     */
+    public Variant {
+        if (robots < 0)
+            throw new IllegalArgumentException("The number of robots cannot be negative.");
+        if (dt <= 0 || time < 0)
+            throw new IllegalArgumentException("The time entered for the simulation is invalid.");
+    }
+}
@@ -0,0 +1,22 @@
+package it.unicam.cs.followme.io;
+
+import java.time.Duration;
+
+/**
+ * Summary of a load of a robot file, made of the number of robots read and the wall-clock time the load took.
+ *
+ * @param lines   The number of robot lines read by the load.
+ * @param elapsed The wall-clock time taken by the load.
+ */
+public record LoadSummary(long lines, Duration elapsed) {
+
+    /**
+     * Gets the number of robot lines read per second of wall-clock time.
+     *
+     * @return The line throughput of the load, 0 if the load took no measurable time.
+     */
+    public double linesPerSecond() {
+        long nanos = this.elapsed.toNanos();
+        return nanos == 0 ? 0 : this.lines * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,270 @@
+package it.unicam.cs.followme.io;
+
+import it.unicam.cs.followme.models.Environment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Loader of robot files, made of one robot per line given by its two coordinates separated by whitespace.
+ * The file is memory-mapped and split into chunks ending at line boundaries, the chunks are parsed in
+ * parallel straight from the mapped bytes into coordinate arrays, and the robots are added to the
+ * environment in bulk, in the order of the file.
+ * Blank lines are skipped and anything after the second coordinate of a line is ignored.
+ */
+public class RobotLoader {
+
+    /**
+     * The default number of bytes of a chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int chunkSize;
+
+    /**
+     * Constructs a loader splitting files into chunks of the default size.
+     */
+    public RobotLoader() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a loader splitting files into chunks of the given size.
+     * A chunk is extended past its size up to the end of the line it stops in.
+     *
+     * @param chunkSize The number of bytes of a chunk.
+     * @throws IllegalArgumentException If the chunk size is not positive.
+     */
+    public RobotLoader(int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("The chunk size must be positive.");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads the robots of a file into an environment.
+     *
+     * @param file        The file containing the robots.
+     * @param environment The environment receiving the robots.
+     * @return The summary of the load.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If a line does not start with two coordinates.
+     */
+    public LoadSummary load(Path file, Environment environment) throws IOException {
+        long start = System.nanoTime();
+        Chunk[] chunks;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Chunk> split = this.split(channel);
+            for (Chunk chunk : split)
+                chunk.bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.length);
+            chunks = split.toArray(new Chunk[0]);
+        }
+        IntStream.range(0, chunks.length).parallel().forEach(i -> chunks[i].parse());
+        long lines = 0;
+        for (Chunk chunk : chunks) {
+            environment.addRobots(chunk.x, chunk.y, chunk.count);
+            lines += chunk.count;
+        }
+        return new LoadSummary(lines, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Splits a file into chunks of about the chunk size, each ending right after a line feed or at the end of the file.
+     */
+    private List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long offset = 0;
+        while (offset < size) {
+            long end = Math.min(size, offset + this.chunkSize);
+            while (end < size && !endsLine(channel, end, probe))
+                end = this.nextLineEnd(channel, end, size, probe);
+            chunks.add(new Chunk(offset, (int) Math.min(end - offset, Integer.MAX_VALUE)));
+            offset = end;
+        }
+        return chunks;
+    }
+
+    private static boolean endsLine(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        probe.clear().limit(1);
+        channel.read(probe, position - 1);
+        return probe.get(0) == '\n';
+    }
+
+    private long nextLineEnd(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0)
+                return size;
+            for (int i = 0; i < read; i++)
+                if (probe.get(i) == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Region of a file parsed by a single task into its own coordinate arrays.
+     */
+    private static final class Chunk {
+
+        private final long offset;
+
+        private final int length;
+
+        private MappedByteBuffer bytes;
+
+        private double[] x;
+
+        private double[] y;
+
+        private int count;
+
+        private int position;
+
+        private Chunk(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private void parse() {
+            int capacity = Math.max(16, this.length / 8);
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.position = 0;
+            while (this.position < this.length) {
+                this.skipBlanks();
+                if (this.position == this.length)
+                    break;
+                if (this.bytes.get(this.position) == '\n') {
+                    this.position++;
+                    continue;
+                }
+                double first = this.parseNumber();
+                this.skipBlanks();
+                double second = this.parseNumber();
+                this.skipLine();
+                if (this.count == this.x.length) {
+                    this.x = Arrays.copyOf(this.x, 2 * this.count);
+                    this.y = Arrays.copyOf(this.y, 2 * this.count);
+                }
+                this.x[this.count] = first;
+                this.y[this.count] = second;
+                this.count++;
+            }
+            this.bytes = null;
+        }
+
+        private void skipBlanks() {
+            while (this.position < this.length && isBlank(this.bytes.get(this.position)))
+                this.position++;
+        }
+
+        private void skipLine() {
+            while (this.position < this.length && this.bytes.get(this.position++) != '\n') {
+                // Trailing tokens of a line are ignored
+            }
+        }
+
+        /**
+         * Parses the number starting at the current position. Numbers of at most 15 significant
+         * digits and a small exponent are computed exactly from their digits; any other token is
+         * handed to {@link Double#parseDouble(String)}.
+         */
+        private double parseNumber() {
+            int start = this.position;
+            int i = start;
+            boolean negative = false;
+            if (i < this.length && (this.bytes.get(i) == '-' || this.bytes.get(i) == '+'))
+                negative = this.bytes.get(i++) == '-';
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean exact = true;
+            boolean seenDigit = false;
+            for (boolean fraction = false; i < this.length; i++) {
+                byte b = this.bytes.get(i);
+                if (b >= '0' && b <= '9') {
+                    seenDigit = true;
+                    if (mantissa != 0 || b != '0')
+                        digits++;
+                    if (digits <= 18)
+                        mantissa = 10 * mantissa + (b - '0');
+                    else if (b != '0')
+                        exact = false;
+                    if (digits > 18 && !fraction)
+                        exponent++;
+                    if (fraction && digits <= 18)
+                        exponent--;
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    break;
+                }
+            }
+            if (i < this.length && (this.bytes.get(i) == 'e' || this.bytes.get(i) == 'E') && seenDigit) {
+                int j = i + 1;
+                boolean negativeExponent = false;
+                if (j < this.length && (this.bytes.get(j) == '-' || this.bytes.get(j) == '+'))
+                    negativeExponent = this.bytes.get(j++) == '-';
+                int value = 0;
+                int exponentStart = j;
+                for (; j < this.length && this.bytes.get(j) >= '0' && this.bytes.get(j) <= '9'; j++)
+                    value = Math.min(10 * value + (this.bytes.get(j) - '0'), 100_000);
+                if (j == exponentStart)
+                    exact = false;
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+            if (seenDigit && exact && (i == this.length || isSeparator(this.bytes.get(i)))
+                    && mantissa <= MAX_EXACT_MANTISSA && Math.abs(exponent) < POWERS_OF_TEN.length) {
+                this.position = i;
+                double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+                return negative ? -value : value;
+            }
+            return this.parseToken(start);
+        }
+
+        private double parseToken(int start) {
+            int end = start;
+            while (end < this.length && !isSeparator(this.bytes.get(end)))
+                end++;
+            byte[] token = new byte[end - start];
+            this.bytes.get(start, token);
+            this.position = end;
+            try {
+                return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed robot coordinates at byte " + (this.offset + start) + ".");
+            }
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        private static boolean isSeparator(byte b) {
+            return isBlank(b) || b == '\n';
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package it.unicam.cs.followme.models;
+
+/**
+ * Mutable accumulator of the positions of a group of entities, read as their centroid.
+ * Queries fill an accumulator provided by the caller, so computing a centroid does not allocate.
+ */
+public class Centroid implements PositionSink {
+
+    private int count;
+
+    private double sumX;
+
+    private double sumY;
+
+    /**
+     * Empties the accumulator.
+     */
+    public void clear() {
+        this.count = 0;
+        this.sumX = 0;
+        this.sumY = 0;
+    }
+
+    /**
+     * Adds a position to the accumulator.
+     *
+     * @param x The x-coordinate of the position.
+     * @param y The y-coordinate of the position.
+     */
+    public void add(double x, double y) {
+        this.add(1, x, y);
+    }
+
+    /**
+     * Adds a group of positions to the accumulator, given by their number and the sums of their coordinates.
+     *
+     * @param count The number of positions.
+     * @param sumX  The sum of the x-coordinates of the positions.
+     * @param sumY  The sum of the y-coordinates of the positions.
+     */
+    @Override
+    public void add(int count, double sumX, double sumY) {
+        this.count += count;
+        this.sumX += sumX;
+        this.sumY += sumY;
+    }
+
+    /**
+     * Removes a position previously added to the accumulator.
+     *
+     * @param x The x-coordinate of the position.
+     * @param y The y-coordinate of the position.
+     */
+    public void remove(double x, double y) {
+        this.add(-1, -x, -y);
+    }
+
+    /**
+     * Gets the number of positions in the accumulator.
+     *
+     * @return The number of positions in the accumulator.
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Gets the x-coordinate of the centroid of the positions.
+     *
+     * @return The x-coordinate of the centroid, NaN if the accumulator is empty.
+     */
+    public double getX() {
+        return this.count == 0 ? Double.NaN : this.sumX / this.count;
+    }
+
+    /**
+     * Gets the y-coordinate of the centroid of the positions.
+     *
+     * @return The y-coordinate of the centroid, NaN if the accumulator is empty.
+     */
+    public double getY() {
+        return this.count == 0 ? Double.NaN : this.sumY / this.count;
+    }
+}
@@ -1,10 +1,15 @@
 package it.unicam.cs.followme.models;
 
 import it.unicam.cs.followme.command.Command;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.trace.TraceSink;
 import it.unicam.cs.followme.util.Direction;
+import it.unicam.cs.followme.util.DirectionCalculator;
 import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.util.SplitMix64;
 import it.unicam.cs.followme.utilities.ShapeData;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Queue;
 
@@ -27,6 +32,13 @@ public interface Entity {
      */
     void setLabel(String label);
 
+    /**
+     * Sets the label of the entity, given by its identifier in the label table of its environment.
+     *
+     * @param label The identifier of the label to be assigned to the entity.
+     */
+    void setLabel(int label);
+
     /**
      * Sets the speed of the entity.
      *
@@ -41,6 +53,29 @@ public interface Entity {
      */
     void setDirection(Direction dir);
 
+    /**
+     * Sets the direction of the entity from its components, without allocating a direction.
+     *
+     * @param deltaX The x-component of the direction, NaN to clear the direction.
+     * @param deltaY The y-component of the direction, NaN to clear the direction.
+     */
+    void setDirection(double deltaX, double deltaY);
+
+    /**
+     * Sets the direction of the entity towards a point, without allocating a direction.
+     * The direction towards the position of the entity itself is (0, 0).
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     */
+    default void setDirectionTowards(double x, double y) {
+        double deltaX = x - this.getX();
+        double deltaY = y - this.getY();
+        double inverseLength = DirectionCalculator.inverseLength(deltaX, deltaY);
+        this.setDirection(DirectionCalculator.normalize(deltaX, inverseLength),
+                DirectionCalculator.normalize(deltaY, inverseLength));
+    }
+
     /**
      * Gets the speed of the entity.
      *
@@ -67,6 +102,13 @@ public interface Entity {
      */
     String signal();
 
+    /**
+     * Gets the identifier of the label of the entity in the label table of its environment.
+     *
+     * @return The identifier of the label of the entity.
+     */
+    int signalId();
+
     /**
      * Unsignals the entity, removing its label.
      */
@@ -84,8 +126,46 @@ public interface Entity {
      */
     Point getPosition();
 
+    /**
+     * Gets the x-coordinate of the entity, without materializing its position.
+     *
+     * @return The x-coordinate of the entity.
+     */
+    double getX();
+
+    /**
+     * Gets the y-coordinate of the entity, without materializing its position.
+     *
+     * @return The y-coordinate of the entity.
+     */
+    double getY();
+
+    /**
+     * Checks whether the entity is within a radius from a point, comparing squared distances.
+     *
+     * @param x      The x-coordinate of the point.
+     * @param y      The y-coordinate of the point.
+     * @param radius The radius around the point.
+     * @return true if the entity is within the radius from the point, false otherwise.
+     */
+    default boolean isWithin(double x, double y, double radius) {
+        return Point.isWithin(this.getX(), this.getY(), x, y, radius);
+    }
+
+    /**
+     * Checks whether the entity is within a radius from another entity, comparing squared distances.
+     *
+     * @param other  The other entity.
+     * @param radius The radius around the other entity.
+     * @return true if the entities are within the radius from each other, false otherwise.
+     */
+    default boolean isWithin(Entity other, double radius) {
+        return this.isWithin(other.getX(), other.getY(), radius);
+    }
+
     /**
      * Gets a list of neighbors within the specified distance from the entity.
+     * The returned list is read-only and may be reused by the next call.
      *
      * @param distance The maximum distance for a neighbor to be considered.
      * @return A list of entities that are neighbors to the current entity.
@@ -93,11 +173,40 @@ public interface Entity {
     List<Entity> getNeighbors(double distance);
 
     /**
-     * Gets a list of entities that share a common signal with the current entity.
+     * Gets the entities that share a common signal with the current entity.
+     * The returned collection is a read-only view of the signal index of the environment.
+     *
+     * @return The entities with a common signal.
+     */
+    Collection<Entity> getCommonSignal();
+
+    /**
+     * Gets the entities that are signaling a label.
+     * The returned collection is a read-only view of the signal index of the environment.
      *
-     * @return A list of entities with a common signal.
+     * @param label The label signaled by the entities.
+     * @return The entities signaling the label.
      */
-    List<Entity> getCommonSignal();
+    Collection<Entity> getCommonSignal(String label);
+
+    /**
+     * Gets the entities that are signaling a label, given by its identifier in the label table of its environment.
+     * The returned collection is a read-only view of the signal index of the environment.
+     *
+     * @param label The identifier of the label signaled by the entities.
+     * @return The entities signaling the label.
+     */
+    Collection<Entity> getCommonSignal(int label);
+
+    /**
+     * Gets the centroid of the other entities signaling a label within a distance from the entity.
+     * The returned accumulator is reused by the next call.
+     *
+     * @param label    The identifier of the label signaled by the entities.
+     * @param distance The maximum distance from the entity.
+     * @return The accumulator of the positions of the entities, empty if there are none.
+     */
+    Centroid getSignalCentroid(int label, double distance);
 
     /**
      * Checks if the entity is inside a shape specified by its shape data.
@@ -116,15 +225,61 @@ public interface Entity {
     boolean isInsideAShape(String label);
 
     /**
-     * Adds a program (sequence of commands) to be executed by the entity.
+     * Checks if the entity is inside a shape with a label, given by its identifier in the label table of its environment.
+     *
+     * @param label The identifier of the label associated with the shape.
+     * @return true if the entity is inside a shape with the label, false otherwise.
+     */
+    boolean isInsideAShape(int label);
+
+    /**
+     * Adds a program (sequence of commands) to be executed by the entity, compiling it.
      *
      * @param program The program to be added to the entity's execution queue.
      */
     void addProgram(Queue<Command> program);
 
     /**
-     * Executes the next instruction in the entity's program.
+     * Adds a compiled program to be executed by the entity, from its first instruction.
+     * The program may be shared with other entities.
+     *
+     * @param program The compiled program to be executed by the entity.
+     * @throws IllegalArgumentException If the entity belongs to an environment the program was not parsed for.
+     */
+    void addProgram(Program program);
+
+    /**
+     * Executes the next step of the entity's program.
      */
     void executeNextInstruction();
+
+    /**
+     * Sets the sink receiving a record for every step executed by the entity.
+     *
+     * @param sink The trace sink of the entity, {@link TraceSink#NO_OP} to disable tracing.
+     */
+    void setTraceSink(TraceSink sink);
+
+    /**
+     * Gets the random stream of the entity, drawn by the commands acting randomly on it.
+     *
+     * @return The random stream of the entity.
+     */
+    SplitMix64 getRandom();
+
+    /**
+     * Sets the random stream of the entity, typically split from the stream of a seeded run.
+     *
+     * @param random The random stream of the entity.
+     * @throws IllegalArgumentException If the stream is null.
+     */
+    void setRandom(SplitMix64 random);
+
+    /**
+     * Checks whether the entity has instructions left to execute.
+     *
+     * @return true if the program of the entity has not been completed, false otherwise.
+     */
+    boolean hasNextInstruction();
 }
 
@@ -1,11 +1,16 @@
 package it.unicam.cs.followme.models;
 
+import it.unicam.cs.followme.util.Point;
 import it.unicam.cs.followme.utilities.ShapeData;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Interface representing the environment in which entities exist.
+ * A simulation step is enclosed between {@link #tickStarted()} and {@link #tickDone()}:
+ * the entities and shapes seen during a tick are stable, and changes requested meanwhile
+ * are applied at the end of the tick.
  */
 public interface Environment {
 
@@ -16,6 +21,16 @@ public interface Environment {
      */
     void addEntity(Entity entity);
 
+    /**
+     * Adds robots at the given positions in bulk, with random streams split from an unseeded stream.
+     *
+     * @param x     The x-coordinates of the robots.
+     * @param y     The y-coordinates of the robots.
+     * @param count The number of robots, read from the start of the coordinate arrays.
+     * @throws IllegalArgumentException If an array is shorter than the number of robots.
+     */
+    void addRobots(double[] x, double[] y, int count);
+
     /**
      * Removes an entity from the environment.
      *
@@ -38,19 +53,26 @@ public interface Environment {
     void removeShape(ShapeData shape);
 
     /**
-     * Gets a list of all entities in the environment.
+     * Gets a read-only view of all entities in the environment.
      *
-     * @return A list of entities in the environment.
+     * @return A read-only view of the entities in the environment.
      */
     List<Entity> getEntities();
 
     /**
-     * Gets a list of all shapes in the environment.
+     * Gets a read-only view of all shapes in the environment.
      *
-     * @return A list of shapes in the environment.
+     * @return A read-only view of the shapes in the environment.
      */
     List<ShapeData> getShapes();
 
+    /**
+     * Gets the label table of the environment, in which the commands of its programs intern their labels.
+     *
+     * @return The label table of the environment.
+     */
+    LabelTable getLabels();
+
     /**
      * Gets a list of shapes in the environment with a specific label.
      *
@@ -59,6 +81,126 @@ public interface Environment {
      */
     List<ShapeData> getShapes(String label);
 
+    /**
+     * Checks whether a point is inside a shape with a specific label.
+     *
+     * @param label The label associated with the shapes.
+     * @param x     The x-coordinate of the point.
+     * @param y     The y-coordinate of the point.
+     * @return true if the point is inside a shape with the specified label, false otherwise.
+     */
+    boolean isInsideAShape(String label, double x, double y);
+
+    /**
+     * Checks whether a point is inside a shape with a label, given by its identifier in the label table of the environment.
+     *
+     * @param label The identifier of the label associated with the shapes.
+     * @param x     The x-coordinate of the point.
+     * @param y     The y-coordinate of the point.
+     * @return true if the point is inside a shape with the label, false otherwise.
+     */
+    boolean isInsideAShape(int label, double x, double y);
+
+    /**
+     * Gets a list of the entities whose position is within a distance from a point.
+     *
+     * @param center   The point from which the distance is measured.
+     * @param distance The maximum distance from the point.
+     * @return A list of the entities within the distance from the point.
+     */
+    List<Entity> getEntitiesInRange(Point center, double distance);
+
+    /**
+     * Adds to a collection the entities whose position is within a distance from a point.
+     *
+     * @param x        The x-coordinate of the point from which the distance is measured.
+     * @param y        The y-coordinate of the point from which the distance is measured.
+     * @param distance The maximum distance from the point.
+     * @param result   The collection receiving the entities within the distance from the point.
+     */
+    void getEntitiesInRange(double x, double y, double distance, Collection<? super Entity> result);
+
+    /**
+     * Adds to a sink, one at a time, the positions of the entities lying within a rectangle, bounds included.
+     *
+     * @param minX   The minimum x-coordinate of the rectangle.
+     * @param minY   The minimum y-coordinate of the rectangle.
+     * @param maxX   The maximum x-coordinate of the rectangle.
+     * @param maxY   The maximum y-coordinate of the rectangle.
+     * @param result The sink receiving the positions of the entities.
+     */
+    void getPositionsInRectangle(double minX, double minY, double maxX, double maxY, PositionSink result);
+
+    /**
+     * Adds to a sink the positions of the entities lying within a rectangle, bounds included,
+     * possibly grouped by area so that dense regions are reported without visiting each entity.
+     *
+     * @param minX   The minimum x-coordinate of the rectangle.
+     * @param minY   The minimum y-coordinate of the rectangle.
+     * @param maxX   The maximum x-coordinate of the rectangle.
+     * @param maxY   The maximum y-coordinate of the rectangle.
+     * @param result The sink receiving the groups of positions of the entities.
+     */
+    void getDensityInRectangle(double minX, double minY, double maxX, double maxY, PositionSink result);
+
+    /**
+     * Adds to an accumulator the positions of the entities signaling a label within a distance from a point.
+     *
+     * @param x        The x-coordinate of the point from which the distance is measured.
+     * @param y        The y-coordinate of the point from which the distance is measured.
+     * @param distance The maximum distance from the point.
+     * @param label    The identifier of the label signaled by the entities.
+     * @param result   The accumulator receiving the positions of the entities.
+     */
+    void getSignalCentroid(double x, double y, double distance, int label, Centroid result);
+
+    /**
+     * Notifies the environment that an entity has moved, so that its spatial index can be updated.
+     *
+     * @param entity The entity that moved.
+     * @param oldX   The x-coordinate of the entity before moving.
+     * @param oldY   The y-coordinate of the entity before moving.
+     */
+    void updatePosition(Entity entity, double oldX, double oldY);
+
+    /**
+     * Gets a read-only view of the entities currently signaling a label.
+     *
+     * @param label The label signaled by the entities.
+     * @return A read-only view of the entities signaling the label.
+     */
+    Collection<Entity> getSignalingEntities(String label);
+
+    /**
+     * Gets the entities currently signaling a label, given by its identifier in the label table of the environment.
+     *
+     * @param label The identifier of the label signaled by the entities.
+     * @return A read-only view of the entities signaling the label.
+     */
+    Collection<Entity> getSignalingEntities(int label);
+
+    /**
+     * Notifies the environment that the label of an entity has changed, so that its signal index can be updated.
+     *
+     * @param entity   The entity whose label changed.
+     * @param oldLabel The identifier of the label of the entity before the change.
+     */
+    void updateSignal(Entity entity, int oldLabel);
+
+    /**
+     * Sets the cell size of the spatial index used to answer range queries.
+     *
+     * @param cellSize The side of a cell of the spatial index.
+     */
+    void setCellSize(double cellSize);
+
+    /**
+     * Adapts the cell size of the spatial index to a query radius, unless a cell size was set explicitly.
+     *
+     * @param radius The largest radius the entities are expected to query.
+     */
+    void fitCellSize(double radius);
+
     /**
      * Checks if an entity is present in the environment.
      *
@@ -75,6 +217,32 @@ public interface Environment {
      */
     boolean isShapeInEnvironment(ShapeData shape);
 
+    /**
+     * Enables or disables the double-buffering of the positions and labels of the entities.
+     * While a double-buffered tick is in progress the entities see the positions and labels
+     * of the previous tick, and the ones they write become visible when the tick is done.
+     *
+     * @param doubleBuffered Whether the entities read the previous tick and write the next one.
+     */
+    void setDoubleBuffered(boolean doubleBuffered);
+
+    /**
+     * Checks whether the positions and labels of the entities are double-buffered.
+     *
+     * @return true if the environment is double-buffered, false otherwise.
+     */
+    boolean isDoubleBuffered();
+
+    /**
+     * Starts a tick, freezing the views of entities and shapes until the tick is done.
+     */
+    void tickStarted();
+
+    /**
+     * Ends a tick, applying the changes requested while it was in progress.
+     */
+    void tickDone();
+
     /**
      * Clears the environment, removing all entities and shapes.
      */
@@ -0,0 +1,91 @@
+package it.unicam.cs.followme.models;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table assigning a dense integer identifier to every label, so that labels can be stored in primitive arrays
+ * and matched by integer comparison.
+ * Every environment has its own table: the commands and shapes built while parsing intern their labels
+ * into the table of the environment they are parsed for, so the table is filled at parse time and the
+ * robots of a swarm only compare identifiers while simulating. The identifiers of a label therefore only
+ * depend on the simulation it belongs to. Lookups do not lock, interning a new label does.
+ */
+public class LabelTable {
+
+    /**
+     * Identifier of the empty label, the label of an entity that is not signaling.
+     */
+    public static final int NO_LABEL = 0;
+
+    private volatile String[] names;
+
+    private final Map<String, Integer> ids;
+
+    /**
+     * Constructs a table containing only the empty label.
+     */
+    public LabelTable() {
+        this.names = new String[]{""};
+        this.ids = new ConcurrentHashMap<>();
+        this.ids.put("", NO_LABEL);
+    }
+
+    /**
+     * Gets the identifier of a label, assigning a new one if the label is not in the table.
+     * A null label is the empty label.
+     *
+     * @param label The label to be looked up.
+     * @return The identifier of the label.
+     */
+    public int intern(String label) {
+        if (label == null)
+            return NO_LABEL;
+        Integer id = this.ids.get(label);
+        return id != null ? id : this.add(label);
+    }
+
+    /**
+     * Gets the identifier of a label without adding it to the table.
+     *
+     * @param label The label to be looked up.
+     * @return The identifier of the label, or -1 if the label is not in the table.
+     */
+    public int find(String label) {
+        if (label == null)
+            return NO_LABEL;
+        Integer id = this.ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the label with the given identifier.
+     *
+     * @param id The identifier of the label.
+     * @return The label with the given identifier.
+     */
+    public String name(int id) {
+        return this.names[id];
+    }
+
+    /**
+     * Gets the number of labels in the table.
+     *
+     * @return The number of labels in the table.
+     */
+    public int size() {
+        return this.names.length;
+    }
+
+    private synchronized int add(String label) {
+        Integer id = this.ids.get(label);
+        if (id != null)
+            return id;
+        String[] grown = Arrays.copyOf(this.names, this.names.length + 1);
+        grown[this.names.length] = label;
+        this.names = grown;
+        this.ids.put(label, grown.length - 1);
+        return grown.length - 1;
+    }
+}
@@ -19,6 +19,10 @@ public class ParserHandler implements FollowMeParserHandler {
 
     private Stack<IterativeCommand> balancedCommands;
 
+    private double followRadius;
+
+    private Program program = Program.empty();
+
     /**
      * Constructs a ParserHandler with the specified environment.
      *
@@ -35,25 +39,48 @@ public class ParserHandler implements FollowMeParserHandler {
     public void parsingStarted() {
         commands = new LinkedList<>();
         balancedCommands = new Stack<>();
+        followRadius = 0;
     }
 
     /**
      *@throws IllegalArgumentException if the iterative commands are not balanced.
      *
-     * Assigns the program to be executed to each entity.
+     * Fits the spatial index to the largest FOLLOW radius, compiles the program and assigns it to each entity.
+     * The compiled program is shared by the entities, each of which keeps only its own program counter and loop stack.
      */
     @Override
     public void parsingDone() {
         if(!this.balancedCommands.isEmpty())
             throw new IllegalArgumentException("COMMANDS ARE NOT BALANCED");
 
+        this.environment.fitCellSize(this.followRadius);
+
+        this.program = Program.compile(this.commands);
         List<Entity> entities = this.environment.getEntities();
         for (Entity entity: entities) {
-            entity.addProgram(this.commands);
+            entity.addProgram(this.program);
             entity.perceive(this.environment);
         }
     }
 
+    /**
+     * Gets the program compiled by the last parse, which can be shared by entities added later.
+     *
+     * @return The program compiled by the last parse, the empty program if no parse is done.
+     */
+    public Program getProgram() {
+        return this.program;
+    }
+
+    /**
+     * Gets the largest FOLLOW radius of the last parsed program.
+     *
+     * @return The largest FOLLOW radius of the last parsed program, 0 if it has no FOLLOW.
+     */
+    public double getFollowRadius() {
+        return this.followRadius;
+    }
+
     @Override
     public void moveCommand(double[] args) {
         MoveCommand move = new MoveCommand(new Point(args[0] , args[1]) , args[2]);
@@ -69,19 +96,20 @@ public class ParserHandler implements FollowMeParserHandler {
 
     @Override
     public void signalCommand(String label) {
-        SignalCommand signal = new SignalCommand(label);
+        SignalCommand signal = new SignalCommand(label, this.environment.getLabels());
         this.check(signal);
     }
 
     @Override
     public void unsignalCommand(String label) {
-        UnsignalCommand unsignal = new UnsignalCommand(label);
+        UnsignalCommand unsignal = new UnsignalCommand(label, this.environment.getLabels());
         this.check(unsignal);
     }
 
     @Override
     public void followCommand(String label, double[] args) {
-        FollowCommand follow = new FollowCommand(label , args[0] , args[1]);
+        FollowCommand follow = new FollowCommand(label , args[0] , args[1], this.environment.getLabels());
+        this.followRadius = Math.max(this.followRadius, args[0]);
         this.check(follow);
     }
 
@@ -106,7 +134,7 @@ public class ParserHandler implements FollowMeParserHandler {
 
     @Override
     public void untilCommandStart(String label) {
-        UntilCommand until = new UntilCommand(label);
+        UntilCommand until = new UntilCommand(label, this.environment.getLabels());
         this.check(until);
         this.balancedCommands.add(until);
     }
@@ -0,0 +1,20 @@
+package it.unicam.cs.followme.models;
+
+/**
+ * Receiver of the positions found by a range query, either one at a time or as groups given by
+ * their number and the sums of their coordinates, so that a query can report a whole cell of a
+ * spatial index at once without visiting its entities.
+ */
+@FunctionalInterface
+public interface PositionSink {
+
+    /**
+     * Adds a group of positions, given by their number and the sums of their coordinates.
+     * A single position is added as a group of one.
+     *
+     * @param count The number of positions.
+     * @param sumX  The sum of the x-coordinates of the positions.
+     * @param sumY  The sum of the y-coordinates of the positions.
+     */
+    void add(int count, double sumX, double sumY);
+}
@@ -1,51 +1,104 @@
 package it.unicam.cs.followme.models;
 
 import it.unicam.cs.followme.command.Command;
+import it.unicam.cs.followme.command.LoopStack;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.trace.TraceSink;
 import it.unicam.cs.followme.util.Direction;
 import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.util.SplitMix64;
 import it.unicam.cs.followme.utilities.ShapeData;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
-import java.util.stream.Collectors;
 
 
 /**
  * Implementation of the Entity interface representing a robot in the environment.
+ * A robot is a thin handle onto a slot of a {@link SwarmState}: a robot created on its own
+ * owns a private store, and is moved into the store of the environment it is added to.
  */
 public class Robot implements Entity {
 
-    private Point position;
+    private SwarmState state;
 
-    private String label;
+    private int slot;
 
-    private Direction direction;
-
-    private double speed;
+    private boolean attached;
 
     private Environment environment;
 
-    public Queue<Command> commands;
+    private List<Entity> neighbors;
+
+    private List<Entity> neighborsView;
+
+    private Centroid centroid;
+
+    private Program program;
+
+    private final LoopStack loops;
+
+    private TraceSink trace;
+
+    private SplitMix64 random;
 
     /**
-     * Constructs a robot with a specified initial position.
+     * Constructs a robot with a specified initial position and an unseeded random stream.
      *
      * @param position The initial position of the robot.
      */
     public Robot(Point position) {
-        this.position = position;
-        this.label = "";
+        this(position, new SplitMix64());
+    }
+
+    /**
+     * Constructs a robot with a specified initial position and random stream.
+     *
+     * @param position The initial position of the robot.
+     * @param random   The random stream of the robot.
+     * @throws IllegalArgumentException If the random stream is null.
+     */
+    public Robot(Point position, SplitMix64 random) {
+        this(new SwarmState(1), position.getX(), position.getY(), random, false);
+    }
+
+    /**
+     * Constructs a robot in a new slot of a store, without going through a private store first.
+     *
+     * @param state    The store receiving the robot.
+     * @param x        The initial x-coordinate of the robot.
+     * @param y        The initial y-coordinate of the robot.
+     * @param random   The random stream of the robot.
+     * @param attached Whether the store is the store of an environment.
+     */
+    Robot(SwarmState state, double x, double y, SplitMix64 random, boolean attached) {
+        this.setRandom(random);
+        this.state = state;
+        this.slot = state.add(this, x, y);
+        this.attached = attached;
+        this.program = Program.empty();
+        this.loops = new LoopStack(0);
+        this.trace = TraceSink.NO_OP;
     }
 
     /**
-     * Constructs a robot with a random initial position within a specified range.
+     * Constructs a robot with a random initial position within a specified range and an unseeded random stream.
      */
     public Robot() {
-        double x = Math.random() * 200 - 100;
-        double y = Math.random() * 200 - 100;
-        this.position = new Point(x, y);
-        this.label = "";
+        this(new SplitMix64());
+    }
+
+    /**
+     * Constructs a robot with an initial position within a specified range drawn from its random stream,
+     * so that robots built from the splits of a seeded stream are placed reproducibly.
+     *
+     * @param random The random stream of the robot.
+     * @throws IllegalArgumentException If the random stream is null.
+     */
+    public Robot(SplitMix64 random) {
+        this(randomPosition(random), random);
     }
 
     /**
@@ -55,32 +108,98 @@ public class Robot implements Entity {
      */
     @Override
     public Point getPosition() {
-        return this.position;
+        return new Point(state.getX(slot), state.getY(slot));
+    }
+
+    /**
+     * Gets the x-coordinate of the robot.
+     *
+     * @return The x-coordinate of the robot.
+     */
+    @Override
+    public double getX() {
+        return state.getX(slot);
+    }
+
+    /**
+     * Gets the y-coordinate of the robot.
+     *
+     * @return The y-coordinate of the robot.
+     */
+    @Override
+    public double getY() {
+        return state.getY(slot);
     }
 
     /**
      * Gets a list of neighboring entities within the specified distance.
+     * The list is a read-only view reused by the next call, so no list is allocated per query.
      *
      * @param distance The maximum distance for an entity to be considered a neighbor.
      * @return A list of neighboring entities.
      */
     @Override
     public List<Entity> getNeighbors(double distance) {
-        return environment.getEntities().stream()
-                .filter(entity -> distance <= entity.getPosition().distance(this.getPosition()))
-                .collect(Collectors.toList());
+        if (this.neighbors == null) {
+            this.neighbors = new ArrayList<>();
+            this.neighborsView = Collections.unmodifiableList(this.neighbors);
+        }
+        this.neighbors.clear();
+        environment.getEntitiesInRange(this.getX(), this.getY(), distance, this.neighbors);
+        this.neighbors.remove(this);
+        return this.neighborsView;
     }
 
     /**
-     * Gets a list of entities with a common signal with the robot.
+     * Gets the entities with a common signal with the robot, looked up in the signal index of the environment.
      *
-     * @return A list of entities with a common signal.
+     * @return The entities with a common signal.
      */
     @Override
-    public List<Entity> getCommonSignal() {
-        return environment.getEntities().stream()
-                .filter(entity -> entity.signal().equals(this.label))
-                .collect(Collectors.toList());
+    public Collection<Entity> getCommonSignal() {
+        return this.getCommonSignal(this.signalId());
+    }
+
+    /**
+     * Gets the entities signaling a label, looked up in the signal index of the environment.
+     *
+     * @param label The label signaled by the entities.
+     * @return The entities signaling the label.
+     */
+    @Override
+    public Collection<Entity> getCommonSignal(String label) {
+        return environment.getSignalingEntities(label);
+    }
+
+    /**
+     * Gets the entities signaling a label given by its identifier, looked up in the signal index of the environment.
+     *
+     * @param label The identifier of the label signaled by the entities.
+     * @return The entities signaling the label.
+     */
+    @Override
+    public Collection<Entity> getCommonSignal(int label) {
+        return environment.getSignalingEntities(label);
+    }
+
+    /**
+     * Gets the centroid of the other robots signaling a label within a distance from the robot,
+     * computed from the label aggregates of the spatial index of the environment.
+     * The accumulator is reused by the next call, so no object is allocated per query.
+     *
+     * @param label    The identifier of the label signaled by the robots.
+     * @param distance The maximum distance from the robot.
+     * @return The accumulator of the positions of the robots, empty if there are none.
+     */
+    @Override
+    public Centroid getSignalCentroid(int label, double distance) {
+        if (this.centroid == null)
+            this.centroid = new Centroid();
+        this.centroid.clear();
+        environment.getSignalCentroid(this.getX(), this.getY(), distance, label, this.centroid);
+        if (this.signalId() == label && distance >= 0 && environment.isEntityInEnvironment(this))
+            this.centroid.remove(this.getX(), this.getY());
+        return this.centroid;
     }
 
     /**
@@ -91,46 +210,41 @@ public class Robot implements Entity {
      */
     @Override
     public boolean isInsideAShape(ShapeData shape) {
-        return switch (shape.shape()) {
-            case "CIRCLE" -> isInsideACircle(shape);
-            case "RECTANGLE" -> isInsideARectangle(shape);
-            default -> false;
-        };
+        return shape.geometry().contains(this.getX(), this.getY());
     }
 
     /**
-     * Checks if the robot is inside a shape specified by its label.
+     * Checks if the robot is inside a shape specified by its label, looked up in the shape index of the environment.
      *
      * @param label The label associated with the shape.
      * @return true if the robot is inside the shape with the specified label, false otherwise.
      */
     @Override
     public boolean isInsideAShape(String label) {
-        return environment.getShapes(label).stream()
-                .anyMatch(this::isInsideAShape);
+        return environment.isInsideAShape(label, this.getX(), this.getY());
     }
 
-    private boolean isInsideACircle(ShapeData shape) {
-        double[] args = shape.args();
-        Point position = new Point(args[0], args[1]);
-        return args[2] >= position.distance(this.getPosition());
-    }
-
-    private boolean isInsideARectangle(ShapeData shape) {
-        double[] args = shape.args();
-        boolean insideX = this.getPosition().getX() >= args[0] && this.getPosition().getX() <= (args[0] + args[2]);
-        boolean insideY = this.getPosition().getY() >= args[1] && this.getPosition().getY() <= (args[1] + args[3]);
-        return insideX && insideY;
+    /**
+     * Checks if the robot is inside a shape with a label given by its identifier, looked up in the shape index of the environment.
+     *
+     * @param label The identifier of the label associated with the shape.
+     * @return true if the robot is inside a shape with the label, false otherwise.
+     */
+    @Override
+    public boolean isInsideAShape(int label) {
+        return environment.isInsideAShape(label, this.getX(), this.getY());
     }
 
     /**
      * Gets the current direction of the robot.
      *
-     * @return The direction of the robot.
+     * @return The direction of the robot, or null if it has not been set.
      */
     @Override
     public Direction getDirection() {
-        return direction;
+        if (!state.hasDirection(slot))
+            return null;
+        return new Direction(state.getDeltaX(slot), state.getDeltaY(slot));
     }
 
     /**
@@ -140,7 +254,21 @@ public class Robot implements Entity {
      */
     @Override
     public void setDirection(Direction direction) {
-        this.direction = direction;
+        if (direction == null)
+            state.setDirection(slot, Double.NaN, Double.NaN);
+        else
+            state.setDirection(slot, direction.getDeltaX(), direction.getDeltaY());
+    }
+
+    /**
+     * Sets the direction of the robot from its components, writing them straight to its slot.
+     *
+     * @param deltaX The x-component of the direction, NaN to clear the direction.
+     * @param deltaY The y-component of the direction, NaN to clear the direction.
+     */
+    @Override
+    public void setDirection(double deltaX, double deltaY) {
+        state.setDirection(slot, deltaX, deltaY);
     }
 
     /**
@@ -160,7 +288,20 @@ public class Robot implements Entity {
      */
     @Override
     public void setLabel(String label) {
-        this.label = label;
+        this.setLabel(state.getLabels().intern(label));
+    }
+
+    /**
+     * Sets the label of the robot, given by its identifier in the label table of its swarm state.
+     *
+     * @param label The identifier of the label to be assigned to the robot.
+     */
+    @Override
+    public void setLabel(int label) {
+        int oldLabel = this.signalId();
+        state.setLabel(slot, label);
+        if (this.environment != null)
+            this.environment.updateSignal(this, oldLabel);
     }
 
     /**
@@ -170,7 +311,7 @@ public class Robot implements Entity {
      */
     @Override
     public void setSpeed(double speed) {
-        this.speed = speed;
+        state.setSpeed(slot, speed);
     }
 
 
@@ -181,7 +322,7 @@ public class Robot implements Entity {
      */
     @Override
     public double getSpeed() {
-        return this.speed;
+        return state.getSpeed(slot);
     }
 
     /**
@@ -191,7 +332,17 @@ public class Robot implements Entity {
      */
     @Override
     public String signal() {
-        return this.label;
+        return state.getLabels().name(state.getLabel(slot));
+    }
+
+    /**
+     * Gets the identifier of the label of the robot in the label table of its swarm state.
+     *
+     * @return The identifier of the label of the robot.
+     */
+    @Override
+    public int signalId() {
+        return state.getLabel(slot);
     }
 
     /**
@@ -199,24 +350,26 @@ public class Robot implements Entity {
      */
     @Override
     public void unsignal() {
-        this.label = "";
+        this.setLabel(LabelTable.NO_LABEL);
     }
 
     /**
      * Moves the robot based on its current speed and direction.
+     * During a double-buffered tick the robot moves from the position it has written so far.
+     * A robot without a direction stays where it is; the step is still in the trace of the robot.
      */
     @Override
     public void move() {
-        if (this.direction != null) {
-            double deltaX = this.speed * direction.getDeltaX();
-            double deltaY = this.speed * direction.getDeltaY();
+        if (state.hasDirection(slot)) {
+            double oldX = state.getNextX(slot);
+            double oldY = state.getNextY(slot);
 
-            double newX = position.getX() + deltaX;
-            double newY = position.getY() + deltaY;
+            double newX = oldX + state.getSpeed(slot) * state.getDeltaX(slot);
+            double newY = oldY + state.getSpeed(slot) * state.getDeltaY(slot);
 
-            position = new Point(newX, newY);
-        } else {
-            System.out.println("Direction not set. Cannot move.");
+            state.setPosition(slot, newX, newY);
+            if (this.environment != null)
+                this.environment.updatePosition(this, oldX, oldY);
         }
     }
 
@@ -225,32 +378,169 @@ public class Robot implements Entity {
      */
     @Override
     public void stop() {
-        this.speed = 0;
+        state.setSpeed(slot, 0);
     }
 
     /**
-     * Adds a program (sequence of commands) to be executed by the robot.
+     * Adds a program (sequence of commands) to be executed by the robot, compiling it.
+     * The queue is not modified.
      *
      * @param program The program to be added to the robot's execution queue.
      */
     @Override
     public void addProgram(Queue<Command> program) {
-        this.commands = new LinkedList<>(program);
+        this.addProgram(Program.compile(program));
+    }
+
+    /**
+     * Adds a compiled program to be executed by the robot, resetting its program counter and loop stack.
+     * A robot outside an environment adopts the label table of the program, so that it can later
+     * be added to the environment the program was parsed for.
+     *
+     * @param program The compiled program to be executed by the robot.
+     * @throws IllegalArgumentException If the robot belongs to an environment the program was not parsed for.
+     */
+    @Override
+    public void addProgram(Program program) {
+        LabelTable labels = program.getLabels();
+        if (labels != null && labels != state.getLabels()) {
+            if (this.attached)
+                throw new IllegalArgumentException("The program uses the labels of another environment.");
+            this.moveTo(new SwarmState(1, labels), false);
+        }
+        this.program = program;
+        this.loops.reset(program.getMaxDepth());
+        state.setProgramCounter(slot, 0);
+    }
+
+    /**
+     * Gets the compiled program executed by the robot.
+     *
+     * @return The program of the robot, the empty program if none has been added.
+     */
+    public Program getProgram() {
+        return this.program;
     }
 
     /**
-     * Executes the next instruction in the robot's program.
+     * Gets the loop stack of the robot, which together with its program counter is its execution state.
+     *
+     * @return The loop stack of the robot.
+     */
+    public LoopStack getLoops() {
+        return this.loops;
+    }
+
+    /**
+     * Executes the next step of the robot's program, recording it if tracing is enabled.
      */
     @Override
     public void executeNextInstruction() {
-        boolean result;
-        if (!this.commands.isEmpty()) {
-            result = this.commands.peek().execute(this);
-            System.out.println(this.commands.peek().toString());
-            if (result)
-                this.commands.remove();
+        int programCounter = state.getProgramCounter(slot);
+        if (programCounter < this.program.length()) {
+            if (this.trace != TraceSink.NO_OP)
+                this.trace.record(slot, programCounter, this.program.getOpcode(programCounter));
+            state.setProgramCounter(slot, this.program.execute(this, programCounter, this.loops));
         }
     }
 
-}
+    /**
+     * Sets the sink receiving a record for every step executed by the robot.
+     *
+     * @param sink The trace sink of the robot, {@link TraceSink#NO_OP} to disable tracing.
+     */
+    @Override
+    public void setTraceSink(TraceSink sink) {
+        this.trace = sink == null ? TraceSink.NO_OP : sink;
+    }
+
+    /**
+     * Gets the random stream of the robot, drawn by the commands acting randomly on it.
+     *
+     * @return The random stream of the robot.
+     */
+    @Override
+    public SplitMix64 getRandom() {
+        return this.random;
+    }
 
+    /**
+     * Sets the random stream of the robot.
+     *
+     * @param random The random stream of the robot.
+     * @throws IllegalArgumentException If the stream is null.
+     */
+    @Override
+    public void setRandom(SplitMix64 random) {
+        if (random == null)
+            throw new IllegalArgumentException("The random stream cannot be null.");
+        this.random = random;
+    }
+
+    /**
+     * Checks whether the robot has instructions left to execute.
+     *
+     * @return true if the program of the robot has not been completed, false otherwise.
+     */
+    @Override
+    public boolean hasNextInstruction() {
+        return state.getProgramCounter(slot) < this.program.length();
+    }
+
+    /**
+     * Gets the swarm state the robot is a handle onto.
+     */
+    SwarmState getState() {
+        return this.state;
+    }
+
+    /**
+     * Gets the slot of the robot in its swarm state.
+     */
+    int getSlot() {
+        return this.slot;
+    }
+
+    /**
+     * Checks whether the robot has been moved into the store of an environment.
+     */
+    boolean isAttached() {
+        return this.attached;
+    }
+
+    /**
+     * Moves the state of the robot into a new slot of another store.
+     * The slot in the previous store is left for its owner to remove.
+     *
+     * @param target   The store receiving the robot.
+     * @param attached Whether the target is the store of an environment.
+     * @return The previous slot of the robot.
+     */
+    int moveTo(SwarmState target, boolean attached) {
+        SwarmState source = this.state;
+        int oldSlot = this.slot;
+        int newSlot = target.add(this, source.getX(oldSlot), source.getY(oldSlot));
+        target.setDirection(newSlot, source.getDeltaX(oldSlot), source.getDeltaY(oldSlot));
+        target.setSpeed(newSlot, source.getSpeed(oldSlot));
+        int label = source.getLabel(oldSlot);
+        target.setLabel(newSlot, source.getLabels() == target.getLabels() ? label : target.getLabels().intern(source.getLabels().name(label)));
+        target.setProgramCounter(newSlot, source.getProgramCounter(oldSlot));
+        this.state = target;
+        this.slot = newSlot;
+        this.attached = attached;
+        return oldSlot;
+    }
+
+    /**
+     * Updates the slot of the robot after its store moved it.
+     */
+    void relocate(int slot) {
+        this.slot = slot;
+    }
+
+    private static Point randomPosition(SplitMix64 random) {
+        if (random == null)
+            throw new IllegalArgumentException("The random stream cannot be null.");
+        return new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100);
+    }
+}
@@ -1,98 +1,526 @@
 package it.unicam.cs.followme.models;
 
+import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.util.SplitMix64;
 import it.unicam.cs.followme.utilities.ShapeData;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Implementation of the Environment interface representing an environment for robots.
+ * Entities and shapes are exposed through read-only views; changes requested while a tick
+ * is in progress are applied when the tick is done.
+ * The state of the robots lives in a {@link SwarmState} owned by the environment: robots added
+ * to it are moved into the store, other entities get a slot mirroring their position.
+ * A double-buffered environment keeps its spatial and signal indexes on the state of the previous
+ * tick while the entities write the next one, and brings them up to date when the tick is done,
+ * so the entities can be stepped in any order or in parallel.
  */
 public class RobotEnvironment implements Environment {
 
+    /**
+     * Cell size of the spatial index used until a program or the user provides a better one.
+     */
+    public static final double DEFAULT_CELL_SIZE = 10;
+
     private List<ShapeData> shapes;
     private List<Entity> entities;
+    private final List<ShapeData> shapesView;
+    private final ShapeIndex shapeIndex;
+    private final List<Entity> entitiesView;
+    private final SwarmState state;
+    private final Map<Entity, Integer> mirroredSlots;
+    private final SpatialGrid grid;
+    private final List<Set<Entity>> signals;
+    private final List<Set<Entity>> signalsViews;
+    private boolean fixedCellSize;
+    private boolean ticking;
+    private final Queue<Runnable> pendingChanges;
 
     /**
-     * Constructs a RobotEnvironment with empty lists of shapes and entities.
+     * Constructs a RobotEnvironment with empty lists of shapes and entities and a label table of its own.
      */
     public RobotEnvironment() {
+        this(new LabelTable());
+    }
+
+    /**
+     * Constructs a RobotEnvironment with empty lists of shapes and entities, using the given label table,
+     * such as the one a program was parsed with.
+     *
+     * @param labels The label table of the environment.
+     */
+    public RobotEnvironment(LabelTable labels) {
         this.shapes = new ArrayList<>();
         this.entities = new ArrayList<>();
+        this.shapesView = Collections.unmodifiableList(this.shapes);
+        this.shapeIndex = new ShapeIndex(labels);
+        this.entitiesView = Collections.unmodifiableList(this.entities);
+        this.state = new SwarmState(SwarmState.INITIAL_CAPACITY, labels);
+        this.mirroredSlots = new IdentityHashMap<>();
+        this.grid = new SpatialGrid(this.state, DEFAULT_CELL_SIZE);
+        this.signals = new ArrayList<>();
+        this.signalsViews = new ArrayList<>();
+        this.fixedCellSize = false;
+        this.ticking = false;
+        this.pendingChanges = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Constructs a RobotEnvironment whose spatial index uses the given cell size.
+     *
+     * @param cellSize The side of a cell of the spatial index.
+     * @throws IllegalArgumentException If the cell size is not positive.
+     */
+    public RobotEnvironment(double cellSize) {
+        this();
+        this.setCellSize(cellSize);
+    }
+
+    /**
+     * Gets the store holding the state of the entities of the environment.
+     *
+     * @return The swarm state of the environment.
+     */
+    public SwarmState getState() {
+        return state;
     }
 
     /**
-     * Adds an entity to the environment.
+     * Gets the label table of the environment, shared by its swarm state and its shape index.
+     *
+     * @return The label table of the environment.
+     */
+    @Override
+    public LabelTable getLabels() {
+        return state.getLabels();
+    }
+
+    /**
+     * Adds an entity to the environment, letting the entity perceive it.
+     * A robot is moved into the swarm state of the environment.
+     * During a tick the entity is added when the tick is done.
      *
      * @param entity The entity to be added to the environment.
+     * @throws IllegalArgumentException If the entity is a robot belonging to another environment,
+     *                                  or running a program parsed for another environment.
      */
     @Override
     public void addEntity(Entity entity) {
+        if (ticking) {
+            pendingChanges.add(() -> this.addEntity(entity));
+            return;
+        }
+        if (this.slotOf(entity) >= 0)
+            return;
+        int slot;
+        if (entity instanceof Robot robot) {
+            if (robot.isAttached())
+                throw new IllegalArgumentException("The robot belongs to another environment.");
+            LabelTable labels = robot.getProgram().getLabels();
+            if (labels != null && labels != state.getLabels())
+                throw new IllegalArgumentException("The program uses the labels of another environment.");
+            robot.moveTo(state, true);
+            slot = robot.getSlot();
+        } else {
+            Point position = entity.getPosition();
+            slot = state.add(entity, position.getX(), position.getY());
+            state.setLabel(slot, entity.signalId());
+            mirroredSlots.put(entity, slot);
+        }
         entities.add(entity);
+        grid.insert(slot, state.getX(slot), state.getY(slot));
+        this.index(entity, entity.signalId());
+        entity.perceive(this);
+    }
+
+    /**
+     * Adds robots at the given positions in bulk, creating them straight into the swarm state
+     * of the environment, which is grown once for all of them.
+     * During a tick the robots are added when the tick is done.
+     *
+     * @param x     The x-coordinates of the robots.
+     * @param y     The y-coordinates of the robots.
+     * @param count The number of robots, read from the start of the coordinate arrays.
+     * @throws IllegalArgumentException If an array is shorter than the number of robots.
+     */
+    @Override
+    public void addRobots(double[] x, double[] y, int count) {
+        if (count < 0 || x.length < count || y.length < count)
+            throw new IllegalArgumentException("The arrays must hold the given number of robots.");
+        if (ticking) {
+            pendingChanges.add(() -> this.addRobots(x, y, count));
+            return;
+        }
+        state.ensureCapacity(state.size() + count);
+        SplitMix64 random = new SplitMix64();
+        for (int i = 0; i < count; i++) {
+            Robot robot = new Robot(state, x[i], y[i], random.split(), true);
+            entities.add(robot);
+            grid.insert(robot.getSlot(), x[i], y[i]);
+            this.index(robot, LabelTable.NO_LABEL);
+            robot.perceive(this);
+        }
     }
 
     /**
      * Removes an entity from the environment.
+     * During a tick the entity is removed when the tick is done.
      *
      * @param entity The entity to be removed from the environment.
      */
     @Override
     public void removeEntity(Entity entity) {
+        if (ticking) {
+            pendingChanges.add(() -> this.removeEntity(entity));
+            return;
+        }
+        int slot = this.slotOf(entity);
+        if (slot < 0)
+            return;
         entities.remove(entity);
+        grid.remove(slot, state.getX(slot), state.getY(slot));
+        this.unindex(entity, entity.signalId());
+        if (entity instanceof Robot robot && robot.getState() == state)
+            robot.moveTo(new SwarmState(1), false);
+        else
+            mirroredSlots.remove(entity);
+        int moved = state.remove(slot);
+        if (moved >= 0) {
+            grid.relocate(moved, slot, state.getX(slot), state.getY(slot));
+            mirroredSlots.replace(state.getEntity(slot), slot);
+        }
+    }
+
+    private int slotOf(Entity entity) {
+        if (entity instanceof Robot robot && robot.getState() == state)
+            return robot.getSlot();
+        Integer slot = mirroredSlots.get(entity);
+        return slot == null ? -1 : slot;
     }
 
     /**
      * Adds a shape to the environment.
+     * During a tick the shape is added when the tick is done.
      *
      * @param shape The shape data representing the shape to be added.
      */
     @Override
     public void addShape(ShapeData shape) {
+        if (ticking) {
+            pendingChanges.add(() -> this.addShape(shape));
+            return;
+        }
         shapes.add(shape);
+        shapeIndex.add(shape);
     }
 
     /**
      * Removes a shape from the environment.
+     * During a tick the shape is removed when the tick is done.
      *
      * @param shape The shape data representing the shape to be removed.
      */
     @Override
     public void removeShape(ShapeData shape) {
-        shapes.remove(shape);
+        if (ticking) {
+            pendingChanges.add(() -> this.removeShape(shape));
+            return;
+        }
+        if (shapes.remove(shape))
+            shapeIndex.remove(shape);
     }
 
     /**
-     * Gets a list of all entities in the environment.
+     * Gets a read-only view of all entities in the environment, without copying them.
      *
-     * @return A list of entities in the environment.
+     * @return A read-only view of the entities in the environment.
      */
     @Override
     public List<Entity> getEntities() {
-        return new ArrayList<>(entities);
+        return entitiesView;
     }
 
     /**
-     * Gets a list of all shapes in the environment.
+     * Gets a read-only view of all shapes in the environment, without copying them.
      *
-     * @return A list of shapes in the environment.
+     * @return A read-only view of the shapes in the environment.
      */
     @Override
     public List<ShapeData> getShapes() {
-        return new ArrayList<>(shapes);
+        return shapesView;
     }
 
     /**
-     * Gets a list of shapes in the environment with a specific label.
+     * Gets a read-only view of the shapes in the environment with a specific label, looked up in the shape index.
      *
      * @param label The label associated with the shapes to be retrieved.
-     * @return A list of shapes in the environment with the specified label.
+     * @return A read-only view of the shapes in the environment with the specified label.
      */
     @Override
     public List<ShapeData> getShapes(String label) {
-        return shapes.stream()
-                .filter(shape -> Objects.equals(shape.label(), label))
-                .collect(Collectors.toList());
+        return shapeIndex.get(label);
+    }
+
+    /**
+     * Checks whether a point is inside a shape with a specific label, testing only the shapes
+     * with the label whose bounding box covers the point.
+     *
+     * @param label The label associated with the shapes.
+     * @param x     The x-coordinate of the point.
+     * @param y     The y-coordinate of the point.
+     * @return true if the point is inside a shape with the specified label, false otherwise.
+     */
+    @Override
+    public boolean isInsideAShape(String label, double x, double y) {
+        return shapeIndex.contains(label, x, y);
+    }
+
+    /**
+     * Checks whether a point is inside a shape with a label given by its identifier, testing only
+     * the shapes with the label whose bounding box covers the point.
+     *
+     * @param label The identifier of the label associated with the shapes.
+     * @param x     The x-coordinate of the point.
+     * @param y     The y-coordinate of the point.
+     * @return true if the point is inside a shape with the label, false otherwise.
+     */
+    @Override
+    public boolean isInsideAShape(int label, double x, double y) {
+        return shapeIndex.contains(label, x, y);
+    }
+
+    /**
+     * Gets a list of the entities whose position is within a distance from a point,
+     * visiting only the cells of the spatial index that overlap the query.
+     *
+     * @param center   The point from which the distance is measured.
+     * @param distance The maximum distance from the point.
+     * @return A list of the entities within the distance from the point.
+     */
+    @Override
+    public List<Entity> getEntitiesInRange(Point center, double distance) {
+        return grid.query(center.getX(), center.getY(), distance);
+    }
+
+    /**
+     * Adds to a collection the entities whose position is within a distance from a point,
+     * visiting only the cells of the spatial index that overlap the query.
+     *
+     * @param x        The x-coordinate of the point from which the distance is measured.
+     * @param y        The y-coordinate of the point from which the distance is measured.
+     * @param distance The maximum distance from the point.
+     * @param result   The collection receiving the entities within the distance from the point.
+     */
+    @Override
+    public void getEntitiesInRange(double x, double y, double distance, Collection<? super Entity> result) {
+        grid.query(x, y, distance, result);
+    }
+
+    /**
+     * Adds to a sink, one at a time, the positions of the entities lying within a rectangle,
+     * visiting only the cells of the spatial index that overlap the rectangle.
+     *
+     * @param minX   The minimum x-coordinate of the rectangle.
+     * @param minY   The minimum y-coordinate of the rectangle.
+     * @param maxX   The maximum x-coordinate of the rectangle.
+     * @param maxY   The maximum y-coordinate of the rectangle.
+     * @param result The sink receiving the positions of the entities.
+     */
+    @Override
+    public void getPositionsInRectangle(double minX, double minY, double maxX, double maxY, PositionSink result) {
+        grid.query(minX, minY, maxX, maxY, result);
+    }
+
+    /**
+     * Adds to a sink the positions of the entities lying within a rectangle. The cells of the
+     * spatial index lying entirely within the rectangle are reported as one group each.
+     *
+     * @param minX   The minimum x-coordinate of the rectangle.
+     * @param minY   The minimum y-coordinate of the rectangle.
+     * @param maxX   The maximum x-coordinate of the rectangle.
+     * @param maxY   The maximum y-coordinate of the rectangle.
+     * @param result The sink receiving the groups of positions of the entities.
+     */
+    @Override
+    public void getDensityInRectangle(double minX, double minY, double maxX, double maxY, PositionSink result) {
+        grid.density(minX, minY, maxX, maxY, result);
+    }
+
+    /**
+     * Moves an entity to the cell of the spatial index containing its current position.
+     * The slot of an entity that is not a robot is refreshed from its position.
+     * During a double-buffered tick the index is updated when the tick is done.
+     *
+     * @param entity The entity that moved.
+     * @param oldX   The x-coordinate of the entity before moving.
+     * @param oldY   The y-coordinate of the entity before moving.
+     */
+    @Override
+    public void updatePosition(Entity entity, double oldX, double oldY) {
+        if (state.isTicking()) {
+            if (!(entity instanceof Robot))
+                pendingChanges.add(() -> this.updatePosition(entity, oldX, oldY));
+            return;
+        }
+        int slot = this.slotOf(entity);
+        if (slot < 0)
+            return;
+        if (mirroredSlots.containsKey(entity)) {
+            double indexedX = state.getX(slot);
+            double indexedY = state.getY(slot);
+            Point position = entity.getPosition();
+            state.setPosition(slot, position.getX(), position.getY());
+            grid.move(slot, indexedX, indexedY, state.getX(slot), state.getY(slot));
+        } else {
+            grid.move(slot, oldX, oldY, state.getX(slot), state.getY(slot));
+        }
+    }
+
+    /**
+     * Adds to an accumulator the positions of the entities signaling a label within a distance from a point,
+     * from the label aggregates of the cells of the spatial index.
+     *
+     * @param x        The x-coordinate of the point from which the distance is measured.
+     * @param y        The y-coordinate of the point from which the distance is measured.
+     * @param distance The maximum distance from the point.
+     * @param label    The identifier of the label signaled by the entities.
+     * @param result   The accumulator receiving the positions of the entities.
+     */
+    @Override
+    public void getSignalCentroid(double x, double y, double distance, int label, Centroid result) {
+        grid.centroid(x, y, distance, label, result);
+    }
+
+    /**
+     * Gets a read-only view of the entities currently signaling a label, looked up in the signal index.
+     *
+     * @param label The label signaled by the entities.
+     * @return A read-only view of the entities signaling the label.
+     */
+    @Override
+    public Collection<Entity> getSignalingEntities(String label) {
+        int id = state.getLabels().find(label);
+        return id < 0 ? Collections.emptySet() : this.getSignalingEntities(id);
+    }
+
+    /**
+     * Gets a read-only view of the entities currently signaling a label, looked up by identifier in the signal index.
+     *
+     * @param label The identifier of the label signaled by the entities.
+     * @return A read-only view of the entities signaling the label.
+     */
+    @Override
+    public Collection<Entity> getSignalingEntities(int label) {
+        return label >= 0 && label < signalsViews.size() ? signalsViews.get(label) : Collections.emptySet();
+    }
+
+    /**
+     * Moves an entity from the members and the cell aggregates of its old label to the ones of its current label.
+     * During a double-buffered tick the labels of robots are brought up to date when the tick is done.
+     *
+     * @param entity   The entity whose label changed.
+     * @param oldLabel The identifier of the label of the entity before the change.
+     */
+    @Override
+    public void updateSignal(Entity entity, int oldLabel) {
+        int label = entity.signalId();
+        if (oldLabel == label)
+            return;
+        if (state.isTicking()) {
+            if (!(entity instanceof Robot))
+                pendingChanges.add(() -> this.updateSignal(entity, oldLabel));
+            return;
+        }
+        int slot = this.slotOf(entity);
+        if (slot < 0)
+            return;
+        if (mirroredSlots.containsKey(entity))
+            state.setLabel(slot, label);
+        grid.relabel(slot, state.getX(slot), state.getY(slot), oldLabel, label);
+        if (this.unindex(entity, oldLabel))
+            this.index(entity, label);
+    }
+
+    private void index(Entity entity, int label) {
+        while (signals.size() <= label) {
+            Set<Entity> members = new LinkedHashSet<>();
+            signals.add(members);
+            signalsViews.add(Collections.unmodifiableSet(members));
+        }
+        signals.get(label).add(entity);
+    }
+
+    private boolean unindex(Entity entity, int label) {
+        return label < signals.size() && signals.get(label).remove(entity);
+    }
+
+    /**
+     * Sets the cell size of the spatial index and re-indexes the entities.
+     *
+     * @param cellSize The side of a cell of the spatial index.
+     * @throws IllegalArgumentException If the cell size is not positive.
+     */
+    @Override
+    public void setCellSize(double cellSize) {
+        this.resize(cellSize);
+        this.fixedCellSize = true;
+    }
+
+    /**
+     * Adapts the cell size of the spatial index to a query radius, unless a cell size was set explicitly.
+     *
+     * @param radius The largest radius the entities are expected to query.
+     */
+    @Override
+    public void fitCellSize(double radius) {
+        if (!fixedCellSize && radius > 0 && radius != grid.getCellSize())
+            this.resize(radius);
+    }
+
+    /**
+     * Gets the cell size of the spatial index.
+     *
+     * @return The side of a cell of the spatial index.
+     */
+    public double getCellSize() {
+        return grid.getCellSize();
+    }
+
+    /**
+     * Checks whether the cell size of the spatial index was set explicitly, so that it is not adapted to query radii.
+     *
+     * @return true if the cell size was set explicitly, false otherwise.
+     */
+    public boolean isCellSizeFixed() {
+        return fixedCellSize;
+    }
+
+    /**
+     * Gets the spatial index of the environment, to be read, or restored from a copy of another
+     * index over the same slots, only while the environment is not ticking.
+     *
+     * @return The spatial index of the environment.
+     */
+    public SpatialGrid getGrid() {
+        return grid;
+    }
+
+    private void resize(double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize))
+            throw new IllegalArgumentException("The cell size must be positive.");
+        grid.clear();
+        grid.setCellSize(cellSize);
+        for (int slot = 0; slot < state.size(); slot++)
+            grid.insert(slot, state.getX(slot), state.getY(slot));
     }
 
     /**
@@ -103,7 +531,7 @@ public class RobotEnvironment implements Environment {
      */
     @Override
     public boolean isEntityInEnvironment(Entity entity) {
-        return entities.contains(entity);
+        return this.slotOf(entity) >= 0;
     }
 
     /**
@@ -117,13 +545,92 @@ public class RobotEnvironment implements Environment {
         return shapes.contains(shape);
     }
 
+    /**
+     * Enables or disables the double-buffering of the positions and labels of the entities.
+     *
+     * @param doubleBuffered Whether the entities read the previous tick and write the next one.
+     * @throws IllegalArgumentException If a tick is in progress.
+     */
+    @Override
+    public void setDoubleBuffered(boolean doubleBuffered) {
+        if (ticking)
+            throw new IllegalArgumentException("The buffering cannot be changed during a tick.");
+        state.setDoubleBuffered(doubleBuffered);
+    }
+
+    /**
+     * Checks whether the positions and labels of the entities are double-buffered.
+     *
+     * @return true if the environment is double-buffered, false otherwise.
+     */
+    @Override
+    public boolean isDoubleBuffered() {
+        return state.isDoubleBuffered();
+    }
+
+    /**
+     * Starts a tick: until the tick is done the views of entities and shapes do not change.
+     */
+    @Override
+    public void tickStarted() {
+        ticking = true;
+        state.tickStarted();
+    }
+
+    /**
+     * Ends a tick, bringing the indexes up to date with a double-buffered tick and
+     * applying the changes requested while it was in progress.
+     */
+    @Override
+    public void tickDone() {
+        if (state.isTicking())
+            this.resync();
+        state.tickDone();
+        ticking = false;
+        while (!pendingChanges.isEmpty())
+            pendingChanges.remove().run();
+    }
+
+    private void resync() {
+        for (int slot = 0; slot < state.size(); slot++) {
+            double x = state.getX(slot);
+            double y = state.getY(slot);
+            double nextX = state.getNextX(slot);
+            double nextY = state.getNextY(slot);
+            if (x != nextX || y != nextY)
+                grid.move(slot, x, y, nextX, nextY);
+            int label = state.getLabel(slot);
+            int nextLabel = state.getNextLabel(slot);
+            if (label == nextLabel)
+                continue;
+            grid.relabel(slot, nextX, nextY, label, nextLabel);
+            if (this.unindex(state.getEntity(slot), label))
+                this.index(state.getEntity(slot), nextLabel);
+        }
+    }
+
     /**
      * Clears the environment, removing all entities and shapes.
+     * The robots are moved out of the swarm state of the environment.
+     * During a tick the environment is cleared when the tick is done.
      */
     @Override
     public void clear() {
+        if (ticking) {
+            pendingChanges.add(this::clear);
+            return;
+        }
+        for (Entity entity : entities)
+            if (entity instanceof Robot robot && robot.getState() == state)
+                robot.moveTo(new SwarmState(1), false);
         entities.clear();
+        state.clear();
+        mirroredSlots.clear();
+        grid.clear();
+        signals.clear();
+        signalsViews.clear();
         shapes.clear();
+        shapeIndex.clear();
     }
 
     /**
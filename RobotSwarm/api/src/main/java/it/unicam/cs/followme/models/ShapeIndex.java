@@ -0,0 +1,261 @@
+package it.unicam.cs.followme.models;
+
+import it.unicam.cs.followme.utilities.Geometry;
+import it.unicam.cs.followme.utilities.ShapeData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of the shapes of an environment, keyed by the identifier of their label in the label
+ * table of the environment. The shapes of every label are also
+ * indexed in a uniform grid of their bounding boxes, so that a containment query only tests
+ * the compiled geometry of the shapes whose bounding box covers the cell of the point.
+ * The grid of a label is rebuilt each time its number of shapes doubles, with a cell size
+ * fitted to the average extent of the shapes.
+ */
+public class ShapeIndex {
+
+    /**
+     * Maximum number of cells a shape is inserted in; larger shapes are tested by every query.
+     */
+    private static final int MAX_CELLS_PER_SHAPE = 64;
+
+    private final LabelTable table;
+
+    private LabelShapes[] labels;
+
+    /**
+     * Constructs an empty index, keyed by the identifiers of the given label table.
+     *
+     * @param table The label table of the environment.
+     */
+    public ShapeIndex(LabelTable table) {
+        this.table = table;
+        this.labels = new LabelShapes[0];
+    }
+
+    /**
+     * Adds a shape to the index.
+     *
+     * @param shape The shape to be added.
+     */
+    public void add(ShapeData shape) {
+        int label = this.table.intern(shape.label());
+        if (label >= this.labels.length)
+            this.labels = Arrays.copyOf(this.labels, Math.max(label + 1, 2 * this.labels.length));
+        if (this.labels[label] == null)
+            this.labels[label] = new LabelShapes();
+        this.labels[label].add(shape);
+    }
+
+    /**
+     * Removes a shape from the index.
+     *
+     * @param shape The shape to be removed.
+     */
+    public void remove(ShapeData shape) {
+        LabelShapes shapes = this.lookup(this.table.find(shape.label()));
+        if (shapes != null)
+            shapes.remove(shape);
+    }
+
+    /**
+     * Gets a read-only view of the shapes with a label.
+     *
+     * @param label The label of the shapes.
+     * @return A read-only view of the shapes with the label.
+     */
+    public List<ShapeData> get(String label) {
+        LabelShapes shapes = this.lookup(this.table.find(label));
+        return shapes == null ? Collections.emptyList() : shapes.view;
+    }
+
+    /**
+     * Checks whether a point is inside a shape with a label.
+     *
+     * @param label The label of the shapes.
+     * @param x     The x-coordinate of the point.
+     * @param y     The y-coordinate of the point.
+     * @return true if the point is inside a shape with the label, false otherwise.
+     */
+    public boolean contains(String label, double x, double y) {
+        return this.contains(this.table.find(label), x, y);
+    }
+
+    /**
+     * Checks whether a point is inside a shape with a label given by its identifier.
+     *
+     * @param label The identifier of the label of the shapes.
+     * @param x     The x-coordinate of the point.
+     * @param y     The y-coordinate of the point.
+     * @return true if the point is inside a shape with the label, false otherwise.
+     */
+    public boolean contains(int label, double x, double y) {
+        LabelShapes shapes = this.lookup(label);
+        return shapes != null && shapes.contains(x, y);
+    }
+
+    /**
+     * Removes every shape from the index.
+     */
+    public void clear() {
+        this.labels = new LabelShapes[0];
+    }
+
+    private LabelShapes lookup(int label) {
+        return label >= 0 && label < this.labels.length ? this.labels[label] : null;
+    }
+
+    /**
+     * Shapes of a label, with the grid of their bounding boxes.
+     */
+    private static final class LabelShapes {
+
+        private final List<ShapeData> shapes = new ArrayList<>();
+
+        private final List<ShapeData> view = Collections.unmodifiableList(this.shapes);
+
+        private final List<Geometry> large = new ArrayList<>();
+
+        private long[] keys = new long[16];
+
+        private Geometry[][] cells = new Geometry[16][];
+
+        private int[] counts = new int[16];
+
+        private int occupied;
+
+        private double cellSize;
+
+        private int indexed;
+
+        private void add(ShapeData shape) {
+            this.shapes.add(shape);
+            if (this.shapes.size() >= 2 * this.indexed)
+                this.rebuild();
+            else
+                this.insert(shape);
+        }
+
+        private boolean remove(ShapeData shape) {
+            if (!this.shapes.remove(shape))
+                return false;
+            this.rebuild();
+            return true;
+        }
+
+        private boolean contains(double x, double y) {
+            for (int i = 0; i < this.large.size(); i++)
+                if (this.large.get(i).contains(x, y))
+                    return true;
+            int slot = this.find(key(this.cell(x), this.cell(y)));
+            if (slot < 0)
+                return false;
+            Geometry[] candidates = this.cells[slot];
+            for (int i = 0; i < this.counts[slot]; i++)
+                if (candidates[i].contains(x, y))
+                    return true;
+            return false;
+        }
+
+        private void rebuild() {
+            double extent = 0;
+            for (ShapeData shape : this.shapes) {
+                Geometry geometry = shape.geometry();
+                extent += Math.max(geometry.maxX() - geometry.minX(), geometry.maxY() - geometry.minY());
+            }
+            int known = this.shapes.size();
+            this.cellSize = known == 0 || !(extent / known > 0) || Double.isInfinite(extent) ? 1 : extent / known;
+            this.large.clear();
+            int capacity = 16;
+            while (capacity < 4 * this.shapes.size())
+                capacity <<= 1;
+            this.keys = new long[capacity];
+            this.cells = new Geometry[capacity][];
+            this.counts = new int[capacity];
+            this.occupied = 0;
+            this.indexed = this.shapes.size();
+            for (ShapeData shape : this.shapes)
+                this.insert(shape);
+        }
+
+        private void insert(ShapeData shape) {
+            Geometry geometry = shape.geometry();
+            long minX = this.cell(geometry.minX());
+            long maxX = this.cell(geometry.maxX());
+            long minY = this.cell(geometry.minY());
+            long maxY = this.cell(geometry.maxY());
+            if (maxX < minX || maxY < minY)
+                return;
+            if ((maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS_PER_SHAPE) {
+                this.large.add(geometry);
+                return;
+            }
+            for (long cx = minX; cx <= maxX; cx++)
+                for (long cy = minY; cy <= maxY; cy++)
+                    this.append(key((int) cx, (int) cy), geometry);
+        }
+
+        private void append(long key, Geometry geometry) {
+            int slot = this.find(key);
+            if (slot < 0) {
+                if (2 * (this.occupied + 1) > this.keys.length)
+                    this.grow();
+                int mask = this.keys.length - 1;
+                slot = hash(key) & mask;
+                while (this.cells[slot] != null)
+                    slot = (slot + 1) & mask;
+                this.keys[slot] = key;
+                this.cells[slot] = new Geometry[2];
+                this.occupied++;
+            } else if (this.counts[slot] == this.cells[slot].length) {
+                this.cells[slot] = Arrays.copyOf(this.cells[slot], 2 * this.counts[slot]);
+            }
+            this.cells[slot][this.counts[slot]++] = geometry;
+        }
+
+        private int find(long key) {
+            int mask = this.keys.length - 1;
+            for (int i = hash(key) & mask; this.cells[i] != null; i = (i + 1) & mask)
+                if (this.keys[i] == key)
+                    return i;
+            return -1;
+        }
+
+        private void grow() {
+            long[] oldKeys = this.keys;
+            Geometry[][] oldCells = this.cells;
+            int[] oldCounts = this.counts;
+            this.keys = new long[2 * oldKeys.length];
+            this.cells = new Geometry[2 * oldKeys.length][];
+            this.counts = new int[2 * oldKeys.length];
+            int mask = this.keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldCells[j] == null)
+                    continue;
+                int i = hash(oldKeys[j]) & mask;
+                while (this.cells[i] != null)
+                    i = (i + 1) & mask;
+                this.keys[i] = oldKeys[j];
+                this.cells[i] = oldCells[j];
+                this.counts[i] = oldCounts[j];
+            }
+        }
+
+        private int cell(double coordinate) {
+            return (int) Math.floor(coordinate / this.cellSize);
+        }
+
+        private static long key(int cx, int cy) {
+            return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
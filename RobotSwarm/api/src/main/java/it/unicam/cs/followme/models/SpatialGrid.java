@@ -0,0 +1,586 @@
+package it.unicam.cs.followme.models;
+
+import it.unicam.cs.followme.util.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Uniform hash grid that indexes the slots of a swarm state by the cell containing their position.
+ * A range query only visits the cells overlapping the query circle, that is the 3x3
+ * neighborhood of the center cell when the radius does not exceed the cell size, and reads
+ * the coordinates of the candidates straight from the arrays of the swarm state.
+ * Cells are kept in an open addressing table with primitive keys, so lookups do not allocate.
+ * Every cell also keeps, per label, the number of its slots with that label and the sums of
+ * their coordinates, read from the swarm state when the slots are inserted, moved or relabeled.
+ * A centroid query adds up the aggregates of the cells lying entirely within the query circle
+ * and only scans the slots of the cells crossed by its boundary, and so does a density query
+ * over a rectangle.
+ * As the slots of a cell and the sums of their coordinates depend on how the slots got there,
+ * the content of the cells can be copied out and put back as it is, so that a restored grid
+ * answers every query exactly as the original one.
+ */
+public class SpatialGrid {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final SwarmState state;
+
+    private long[] keys;
+
+    private Cell[] cells;
+
+    private int size;
+
+    private double cellSize;
+
+    /**
+     * Constructs an empty grid over a swarm state with the specified cell size.
+     *
+     * @param state    The swarm state whose slots are indexed.
+     * @param cellSize The side of a grid cell.
+     * @throws IllegalArgumentException If the cell size is not positive.
+     */
+    public SpatialGrid(SwarmState state, double cellSize) {
+        this.state = state;
+        this.allocate(INITIAL_CAPACITY);
+        this.setCellSize(cellSize);
+    }
+
+    /**
+     * Gets the side of a grid cell.
+     *
+     * @return The side of a grid cell.
+     */
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * Sets the side of a grid cell. The grid must be empty, callers re-insert the slots afterwards.
+     *
+     * @param cellSize The new side of a grid cell.
+     * @throws IllegalArgumentException If the cell size is not positive or the grid is not empty.
+     */
+    public void setCellSize(double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize))
+            throw new IllegalArgumentException("The cell size must be positive.");
+        if (this.size != 0)
+            throw new IllegalArgumentException("The cell size of a non-empty grid cannot be changed.");
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Inserts a slot in the cell containing the given position.
+     *
+     * @param slot The slot to be inserted.
+     * @param x    The x-coordinate of the slot.
+     * @param y    The y-coordinate of the slot.
+     */
+    public void insert(int slot, double x, double y) {
+        long key = this.key(x, y);
+        Cell cell = this.get(key);
+        if (cell == null)
+            cell = this.put(key);
+        cell.add(slot);
+        cell.aggregate(this.state.getLabel(slot), 1, x, y);
+    }
+
+    /**
+     * Removes a slot from the cell containing the given position.
+     * Empty cells are kept until the table grows, so a robot moving back and forth does not allocate.
+     *
+     * @param slot The slot to be removed.
+     * @param x    The x-coordinate at which the slot was indexed.
+     * @param y    The y-coordinate at which the slot was indexed.
+     * @return true if the slot was indexed in that cell, false otherwise.
+     */
+    public boolean remove(int slot, double x, double y) {
+        Cell cell = this.get(this.key(x, y));
+        if (cell == null || !cell.replace(slot, -1))
+            return false;
+        cell.aggregate(this.state.getLabel(slot), -1, -x, -y);
+        return true;
+    }
+
+    /**
+     * Moves a slot between the cells containing its old and new positions, updating the
+     * aggregates of its label in the swarm state.
+     *
+     * @param slot The slot that moved.
+     * @param oldX The x-coordinate at which the slot was indexed.
+     * @param oldY The y-coordinate at which the slot was indexed.
+     * @param newX The current x-coordinate of the slot.
+     * @param newY The current y-coordinate of the slot.
+     */
+    public void move(int slot, double oldX, double oldY, double newX, double newY) {
+        long key = this.key(oldX, oldY);
+        if (key == this.key(newX, newY)) {
+            Cell cell = this.get(key);
+            if (cell != null)
+                cell.aggregate(this.state.getLabel(slot), 0, newX - oldX, newY - oldY);
+            return;
+        }
+        if (this.remove(slot, oldX, oldY))
+            this.insert(slot, newX, newY);
+    }
+
+    /**
+     * Moves a slot between the aggregates of two labels, without changing its cell.
+     *
+     * @param slot     The slot whose label changed.
+     * @param x        The x-coordinate at which the slot is indexed.
+     * @param y        The y-coordinate at which the slot is indexed.
+     * @param oldLabel The identifier of the former label of the slot.
+     * @param newLabel The identifier of the new label of the slot.
+     */
+    public void relabel(int slot, double x, double y, int oldLabel, int newLabel) {
+        Cell cell = this.get(this.key(x, y));
+        if (cell == null || oldLabel == newLabel)
+            return;
+        cell.aggregate(oldLabel, -1, -x, -y);
+        cell.aggregate(newLabel, 1, x, y);
+    }
+
+    /**
+     * Replaces the index of a slot that the swarm state moved, without changing its cell.
+     *
+     * @param from The former index of the slot.
+     * @param to   The new index of the slot.
+     * @param x    The x-coordinate of the slot.
+     * @param y    The y-coordinate of the slot.
+     */
+    public void relocate(int from, int to, double x, double y) {
+        Cell cell = this.get(this.key(x, y));
+        if (cell != null)
+            cell.replace(from, to);
+    }
+
+    /**
+     * Adds to a collection the entities whose position is within the given distance from a center.
+     *
+     * @param x        The x-coordinate of the center of the query.
+     * @param y        The y-coordinate of the center of the query.
+     * @param distance The maximum distance from the center.
+     * @param result   The collection receiving the entities within the distance from the center.
+     */
+    public void query(double x, double y, double distance, Collection<? super Entity> result) {
+        if (distance < 0)
+            return;
+        double squaredDistance = distance * distance;
+        int minX = this.cell(x - distance);
+        int maxX = this.cell(x + distance);
+        int minY = this.cell(y - distance);
+        int maxY = this.cell(y + distance);
+        if (((long) maxX - minX + 1) * ((long) maxY - minY + 1) > this.size) {
+            for (Cell cell : this.cells)
+                if (cell != null)
+                    this.collect(cell, x, y, squaredDistance, result);
+            return;
+        }
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                Cell cell = this.get(key(cx, cy));
+                if (cell != null)
+                    this.collect(cell, x, y, squaredDistance, result);
+            }
+        }
+    }
+
+    /**
+     * Adds to an accumulator the positions of the slots with a label within the given distance from a center.
+     * Cells lying entirely within the distance contribute their aggregates, the slots of the
+     * other overlapping cells are checked one by one.
+     *
+     * @param x        The x-coordinate of the center of the query.
+     * @param y        The y-coordinate of the center of the query.
+     * @param distance The maximum distance from the center.
+     * @param label    The identifier of the label of the slots.
+     * @param result   The accumulator receiving the positions.
+     */
+    public void centroid(double x, double y, double distance, int label, Centroid result) {
+        if (distance < 0)
+            return;
+        double squaredDistance = distance * distance;
+        int minX = this.cell(x - distance);
+        int maxX = this.cell(x + distance);
+        int minY = this.cell(y - distance);
+        int maxY = this.cell(y + distance);
+        if (((long) maxX - minX + 1) * ((long) maxY - minY + 1) > this.size) {
+            for (int i = 0; i < this.cells.length; i++)
+                if (this.cells[i] != null)
+                    this.accumulate(this.cells[i], (int) (this.keys[i] >> 32), (int) this.keys[i], x, y, squaredDistance, label, result);
+            return;
+        }
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                Cell cell = this.get(key(cx, cy));
+                if (cell != null)
+                    this.accumulate(cell, cx, cy, x, y, squaredDistance, label, result);
+            }
+        }
+    }
+
+    private void accumulate(Cell cell, int cx, int cy, double x, double y, double squaredDistance, int label, Centroid result) {
+        int aggregate = cell.find(label);
+        if (aggregate < 0)
+            return;
+        double farX = Math.max(Math.abs(cx * this.cellSize - x), Math.abs((cx + 1) * this.cellSize - x));
+        double farY = Math.max(Math.abs(cy * this.cellSize - y), Math.abs((cy + 1) * this.cellSize - y));
+        if (farX * farX + farY * farY <= squaredDistance) {
+            result.add(cell.counts[aggregate], cell.sumX[aggregate], cell.sumY[aggregate]);
+            return;
+        }
+        for (int i = 0; i < cell.size; i++) {
+            int slot = cell.slots[i];
+            double slotX = this.state.getX(slot);
+            double slotY = this.state.getY(slot);
+            if (this.state.getLabel(slot) == label && Point.distanceSquared(slotX, slotY, x, y) <= squaredDistance)
+                result.add(slotX, slotY);
+        }
+    }
+
+    /**
+     * Adds to a sink, one at a time, the positions of the slots lying within a rectangle, bounds included.
+     *
+     * @param minX   The minimum x-coordinate of the rectangle.
+     * @param minY   The minimum y-coordinate of the rectangle.
+     * @param maxX   The maximum x-coordinate of the rectangle.
+     * @param maxY   The maximum y-coordinate of the rectangle.
+     * @param result The sink receiving the positions.
+     */
+    public void query(double minX, double minY, double maxX, double maxY, PositionSink result) {
+        this.visit(minX, minY, maxX, maxY, false, result);
+    }
+
+    /**
+     * Adds to a sink the positions of the slots lying within a rectangle, bounds included.
+     * Cells lying entirely within the rectangle contribute their slots as one group, the slots of
+     * the other overlapping cells are added one at a time, so the cost of the query depends on the
+     * area of the rectangle rather than on the number of slots within it.
+     *
+     * @param minX   The minimum x-coordinate of the rectangle.
+     * @param minY   The minimum y-coordinate of the rectangle.
+     * @param maxX   The maximum x-coordinate of the rectangle.
+     * @param maxY   The maximum y-coordinate of the rectangle.
+     * @param result The sink receiving the positions.
+     */
+    public void density(double minX, double minY, double maxX, double maxY, PositionSink result) {
+        this.visit(minX, minY, maxX, maxY, true, result);
+    }
+
+    private void visit(double minX, double minY, double maxX, double maxY, boolean aggregated, PositionSink result) {
+        if (!(minX <= maxX) || !(minY <= maxY))
+            return;
+        int minCellX = this.cell(minX);
+        int maxCellX = this.cell(maxX);
+        int minCellY = this.cell(minY);
+        int maxCellY = this.cell(maxY);
+        if (((long) maxCellX - minCellX + 1) * ((long) maxCellY - minCellY + 1) > this.size) {
+            for (int i = 0; i < this.cells.length; i++) {
+                if (this.cells[i] == null)
+                    continue;
+                int cx = (int) (this.keys[i] >> 32);
+                int cy = (int) this.keys[i];
+                if (cx >= minCellX && cx <= maxCellX && cy >= minCellY && cy <= maxCellY)
+                    this.visit(this.cells[i], cx, cy, minX, minY, maxX, maxY, aggregated, result);
+            }
+            return;
+        }
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                Cell cell = this.get(key(cx, cy));
+                if (cell != null)
+                    this.visit(cell, cx, cy, minX, minY, maxX, maxY, aggregated, result);
+            }
+        }
+    }
+
+    private void visit(Cell cell, int cx, int cy, double minX, double minY, double maxX, double maxY,
+                       boolean aggregated, PositionSink result) {
+        if (cell.size == 0)
+            return;
+        if (aggregated && cx * this.cellSize >= minX && (cx + 1) * this.cellSize <= maxX
+                && cy * this.cellSize >= minY && (cy + 1) * this.cellSize <= maxY) {
+            double sumX = 0;
+            double sumY = 0;
+            for (int i = 0; i < cell.aggregates; i++) {
+                sumX += cell.sumX[i];
+                sumY += cell.sumY[i];
+            }
+            result.add(cell.size, sumX, sumY);
+            return;
+        }
+        for (int i = 0; i < cell.size; i++) {
+            int slot = cell.slots[i];
+            double slotX = this.state.getX(slot);
+            double slotY = this.state.getY(slot);
+            if (slotX >= minX && slotX <= maxX && slotY >= minY && slotY <= maxY)
+                result.add(1, slotX, slotY);
+        }
+    }
+
+    /**
+     * Collects the entities whose position is within the given distance from a center.
+     *
+     * @param x        The x-coordinate of the center of the query.
+     * @param y        The y-coordinate of the center of the query.
+     * @param distance The maximum distance from the center.
+     * @return A list of the entities within the distance from the center.
+     */
+    public List<Entity> query(double x, double y, double distance) {
+        List<Entity> result = new ArrayList<>();
+        this.query(x, y, distance, result);
+        return result;
+    }
+
+    /**
+     * Removes every slot from the grid.
+     */
+    public void clear() {
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Removes every slot from the grid, giving its table the given number of positions.
+     *
+     * @param capacity The number of positions of the table of cells.
+     * @throws IllegalArgumentException If the capacity is not a power of two.
+     */
+    public void clear(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("The capacity must be a power of two.");
+        this.allocate(capacity);
+    }
+
+    /**
+     * Gets the number of positions of the table of cells.
+     *
+     * @return The capacity of the table of cells.
+     */
+    public int getCapacity() {
+        return this.keys.length;
+    }
+
+    /**
+     * Gets the number of cells of the table, including the emptied ones it keeps.
+     *
+     * @return The number of cells of the grid.
+     */
+    public int getCellCount() {
+        return this.size;
+    }
+
+    /**
+     * Gets a copy of the cell at a position of the table, which may be an emptied cell.
+     *
+     * @param index The position in the table of cells, less than its capacity.
+     * @return The content of the cell, null if the position holds no cell.
+     */
+    public CellContent getCell(int index) {
+        Cell cell = this.cells[index];
+        if (cell == null)
+            return null;
+        return new CellContent(index, this.keys[index], Arrays.copyOf(cell.slots, cell.size),
+                Arrays.copyOf(cell.labels, cell.aggregates), Arrays.copyOf(cell.counts, cell.aggregates),
+                Arrays.copyOf(cell.sumX, cell.aggregates), Arrays.copyOf(cell.sumY, cell.aggregates));
+    }
+
+    /**
+     * Puts a cell copied from a grid with a table of the same capacity back at its position.
+     *
+     * @param content The content of the cell.
+     * @throws IllegalArgumentException If the position of the cell is outside the table or already taken.
+     */
+    public void restore(CellContent content) {
+        int i = content.index();
+        if (i < 0 || i >= this.cells.length || this.cells[i] != null)
+            throw new IllegalArgumentException("The position of the cell is not free.");
+        Cell cell = new Cell();
+        cell.slots = content.slots().length == 0 ? new int[4] : content.slots().clone();
+        cell.size = content.slots().length;
+        if (content.labels().length > 0) {
+            cell.labels = content.labels().clone();
+            cell.counts = content.counts().clone();
+            cell.sumX = content.sumX().clone();
+            cell.sumY = content.sumY().clone();
+        }
+        cell.aggregates = content.labels().length;
+        this.keys[i] = content.key();
+        this.cells[i] = cell;
+        this.size++;
+    }
+
+    private void collect(Cell cell, double x, double y, double squaredDistance, Collection<? super Entity> result) {
+        for (int i = 0; i < cell.size; i++) {
+            int slot = cell.slots[i];
+            if (Point.distanceSquared(this.state.getX(slot), this.state.getY(slot), x, y) <= squaredDistance)
+                result.add(this.state.getEntity(slot));
+        }
+    }
+
+    private Cell get(long key) {
+        int mask = this.keys.length - 1;
+        for (int i = hash(key) & mask; this.cells[i] != null; i = (i + 1) & mask) {
+            if (this.keys[i] == key)
+                return this.cells[i];
+        }
+        return null;
+    }
+
+    private Cell put(long key) {
+        if (2 * (this.size + 1) > this.keys.length)
+            this.rehash();
+        int mask = this.keys.length - 1;
+        int i = hash(key) & mask;
+        while (this.cells[i] != null)
+            i = (i + 1) & mask;
+        this.keys[i] = key;
+        this.cells[i] = new Cell();
+        this.size++;
+        return this.cells[i];
+    }
+
+    private void rehash() {
+        long[] oldKeys = this.keys;
+        Cell[] oldCells = this.cells;
+        int occupied = 0;
+        for (Cell cell : oldCells)
+            if (cell != null && cell.size > 0)
+                occupied++;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < 4 * (occupied + 1))
+            capacity <<= 1;
+        this.allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldCells.length; j++) {
+            if (oldCells[j] == null || oldCells[j].size == 0)
+                continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (this.cells[i] != null)
+                i = (i + 1) & mask;
+            this.keys[i] = oldKeys[j];
+            this.cells[i] = oldCells[j];
+            this.size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.cells = new Cell[capacity];
+        this.size = 0;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / this.cellSize);
+    }
+
+    private long key(double x, double y) {
+        return key(this.cell(x), this.cell(y));
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Copy of a cell of a grid, with its position in the table of the grid.
+     *
+     * @param index  The position of the cell in the table of the grid.
+     * @param key    The key of the cell, made of its column and row.
+     * @param slots  The slots of the cell, in the order they are visited.
+     * @param labels The identifiers of the labels aggregated in the cell.
+     * @param counts The number of slots of each label.
+     * @param sumX   The sum of the x-coordinates of the slots of each label.
+     * @param sumY   The sum of the y-coordinates of the slots of each label.
+     */
+    public record CellContent(int index, long key, int[] slots, int[] labels, int[] counts, double[] sumX, double[] sumY) {
+    }
+
+    /**
+     * Growable array of the slots indexed in a cell, with the aggregates of their labels.
+     */
+    private static final class Cell {
+
+        private int[] slots = new int[4];
+
+        private int size;
+
+        private int[] labels = new int[1];
+
+        private int[] counts = new int[1];
+
+        private double[] sumX = new double[1];
+
+        private double[] sumY = new double[1];
+
+        private int aggregates;
+
+        /**
+         * Adds a number of slots and the sums of their coordinates to the aggregate of a label.
+         * An aggregate left without slots is dropped, discarding the rounding its sums accumulated.
+         */
+        private void aggregate(int label, int count, double x, double y) {
+            int i = this.find(label);
+            if (i < 0) {
+                if (this.aggregates == this.labels.length) {
+                    this.labels = Arrays.copyOf(this.labels, 2 * this.aggregates);
+                    this.counts = Arrays.copyOf(this.counts, 2 * this.aggregates);
+                    this.sumX = Arrays.copyOf(this.sumX, 2 * this.aggregates);
+                    this.sumY = Arrays.copyOf(this.sumY, 2 * this.aggregates);
+                }
+                i = this.aggregates++;
+                this.labels[i] = label;
+                this.counts[i] = 0;
+                this.sumX[i] = 0;
+                this.sumY[i] = 0;
+            }
+            this.counts[i] += count;
+            this.sumX[i] += x;
+            this.sumY[i] += y;
+            if (this.counts[i] == 0) {
+                int last = --this.aggregates;
+                this.labels[i] = this.labels[last];
+                this.counts[i] = this.counts[last];
+                this.sumX[i] = this.sumX[last];
+                this.sumY[i] = this.sumY[last];
+            }
+        }
+
+        private int find(int label) {
+            for (int i = 0; i < this.aggregates; i++)
+                if (this.labels[i] == label)
+                    return i;
+            return -1;
+        }
+
+        private void add(int slot) {
+            if (this.size == this.slots.length)
+                this.slots = Arrays.copyOf(this.slots, 2 * this.size);
+            this.slots[this.size++] = slot;
+        }
+
+        /**
+         * Replaces a slot with another one, or removes it when the replacement is negative.
+         */
+        private boolean replace(int slot, int replacement) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.slots[i] == slot) {
+                    if (replacement < 0)
+                        this.slots[i] = this.slots[--this.size];
+                    else
+                        this.slots[i] = replacement;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
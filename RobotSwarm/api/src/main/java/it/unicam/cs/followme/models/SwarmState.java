@@ -0,0 +1,442 @@
+package it.unicam.cs.followme.models;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays store of the state of a swarm. Every entity occupies a slot, and the
+ * position, direction, speed, label and program counter of all the slots are kept in parallel
+ * primitive arrays, so that iterating the swarm walks contiguous memory.
+ * Robots are thin handles onto a slot of a store.
+ * A double-buffered store keeps a second copy of the positions and labels: during a tick the
+ * slots read the positions and labels of the previous tick and write the ones of the next tick,
+ * so the outcome of a tick does not depend on the order in which the slots are updated.
+ */
+public class SwarmState {
+
+    static final int INITIAL_CAPACITY = 16;
+
+    private double[] x;
+
+    private double[] y;
+
+    private double[] dx;
+
+    private double[] dy;
+
+    private double[] speed;
+
+    private int[] label;
+
+    private int[] programCounter;
+
+    private Entity[] entities;
+
+    private double[] nextX;
+
+    private double[] nextY;
+
+    private int[] nextLabel;
+
+    private boolean doubleBuffered;
+
+    private boolean ticking;
+
+    private int size;
+
+    private final LabelTable labels;
+
+    /**
+     * Constructs an empty store, storing identifiers of a label table of its own.
+     */
+    public SwarmState() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store with the given initial capacity, storing identifiers of a label table of its own.
+     *
+     * @param capacity The number of slots allocated up front.
+     */
+    public SwarmState(int capacity) {
+        this(capacity, new LabelTable());
+    }
+
+    /**
+     * Constructs an empty store with the given initial capacity and label table.
+     *
+     * @param capacity The number of slots allocated up front.
+     * @param labels   The table of the labels stored in the slots.
+     */
+    public SwarmState(int capacity, LabelTable labels) {
+        this.labels = labels;
+        this.allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * Adds an entity in a new slot, with no direction, no speed, no label and no executed instruction.
+     *
+     * @param entity The entity occupying the slot.
+     * @param x      The x-coordinate of the entity.
+     * @param y      The y-coordinate of the entity.
+     * @return The slot of the entity.
+     */
+    public int add(Entity entity, double x, double y) {
+        if (this.ticking)
+            throw new IllegalArgumentException("Slots cannot be added during a tick.");
+        if (this.size == this.entities.length)
+            this.allocate(2 * this.size);
+        int slot = this.size++;
+        this.entities[slot] = entity;
+        this.x[slot] = x;
+        this.y[slot] = y;
+        this.dx[slot] = Double.NaN;
+        this.dy[slot] = Double.NaN;
+        this.speed[slot] = 0;
+        this.label[slot] = LabelTable.NO_LABEL;
+        this.programCounter[slot] = 0;
+        return slot;
+    }
+
+    /**
+     * Grows the store so that it holds at least the given number of slots without reallocating.
+     *
+     * @param capacity The number of slots the store must hold.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > this.entities.length)
+            this.allocate(capacity);
+    }
+
+    /**
+     * Removes a slot by moving the last slot into it. Robots occupying the moved slot are rebound to their new slot.
+     *
+     * @param slot The slot to be removed.
+     * @return The former index of the slot moved into the removed one, or -1 if the removed slot was the last one.
+     */
+    public int remove(int slot) {
+        if (this.ticking)
+            throw new IllegalArgumentException("Slots cannot be removed during a tick.");
+        int last = --this.size;
+        int moved = -1;
+        if (slot != last) {
+            this.entities[slot] = this.entities[last];
+            this.x[slot] = this.x[last];
+            this.y[slot] = this.y[last];
+            this.dx[slot] = this.dx[last];
+            this.dy[slot] = this.dy[last];
+            this.speed[slot] = this.speed[last];
+            this.label[slot] = this.label[last];
+            this.programCounter[slot] = this.programCounter[last];
+            if (this.entities[slot] instanceof Robot robot && robot.getState() == this)
+                robot.relocate(slot);
+            moved = last;
+        }
+        this.entities[last] = null;
+        return moved;
+    }
+
+    /**
+     * Checks whether the positions and labels of the slots are double-buffered.
+     *
+     * @return true if the store is double-buffered, false otherwise.
+     */
+    public boolean isDoubleBuffered() {
+        return this.doubleBuffered;
+    }
+
+    /**
+     * Enables or disables the double-buffering of positions and labels.
+     *
+     * @param doubleBuffered Whether the positions and labels of the slots are double-buffered.
+     * @throws IllegalArgumentException If a tick is in progress.
+     */
+    public void setDoubleBuffered(boolean doubleBuffered) {
+        if (this.ticking)
+            throw new IllegalArgumentException("The buffering cannot be changed during a tick.");
+        this.doubleBuffered = doubleBuffered;
+        if (doubleBuffered && this.nextX == null) {
+            this.nextX = new double[this.entities.length];
+            this.nextY = new double[this.entities.length];
+            this.nextLabel = new int[this.entities.length];
+        } else if (!doubleBuffered) {
+            this.nextX = null;
+            this.nextY = null;
+            this.nextLabel = null;
+        }
+    }
+
+    /**
+     * Starts a tick. In a double-buffered store, positions and labels written from now on are
+     * only visible once the tick is done.
+     */
+    public void tickStarted() {
+        if (!this.doubleBuffered)
+            return;
+        System.arraycopy(this.x, 0, this.nextX, 0, this.size);
+        System.arraycopy(this.y, 0, this.nextY, 0, this.size);
+        System.arraycopy(this.label, 0, this.nextLabel, 0, this.size);
+        this.ticking = true;
+    }
+
+    /**
+     * Checks whether the written positions and labels are buffered until the tick is done.
+     *
+     * @return true if a tick of a double-buffered store is in progress, false otherwise.
+     */
+    public boolean isTicking() {
+        return this.ticking;
+    }
+
+    /**
+     * Gets the x-coordinate a slot will have once the tick is done.
+     *
+     * @param slot The slot.
+     * @return The x-coordinate written during the tick.
+     */
+    public double getNextX(int slot) {
+        return this.ticking ? this.nextX[slot] : this.x[slot];
+    }
+
+    /**
+     * Gets the y-coordinate a slot will have once the tick is done.
+     *
+     * @param slot The slot.
+     * @return The y-coordinate written during the tick.
+     */
+    public double getNextY(int slot) {
+        return this.ticking ? this.nextY[slot] : this.y[slot];
+    }
+
+    /**
+     * Gets the identifier of the label a slot will have once the tick is done.
+     *
+     * @param slot The slot.
+     * @return The identifier of the label written during the tick.
+     */
+    public int getNextLabel(int slot) {
+        return this.ticking ? this.nextLabel[slot] : this.label[slot];
+    }
+
+    /**
+     * Ends a tick, making the positions and labels written during it visible.
+     */
+    public void tickDone() {
+        if (!this.ticking)
+            return;
+        double[] swap = this.x;
+        this.x = this.nextX;
+        this.nextX = swap;
+        swap = this.y;
+        this.y = this.nextY;
+        this.nextY = swap;
+        int[] labelSwap = this.label;
+        this.label = this.nextLabel;
+        this.nextLabel = labelSwap;
+        this.ticking = false;
+    }
+
+    /**
+     * Removes every slot.
+     */
+    public void clear() {
+        Arrays.fill(this.entities, 0, this.size, null);
+        this.size = 0;
+    }
+
+    /**
+     * Gets the number of occupied slots.
+     *
+     * @return The number of occupied slots.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the table of the labels stored in the slots.
+     *
+     * @return The table of the labels stored in the slots.
+     */
+    public LabelTable getLabels() {
+        return this.labels;
+    }
+
+    /**
+     * Gets the entity occupying a slot.
+     *
+     * @param slot The slot.
+     * @return The entity occupying the slot.
+     */
+    public Entity getEntity(int slot) {
+        return this.entities[slot];
+    }
+
+    /**
+     * Gets the x-coordinate of a slot.
+     *
+     * @param slot The slot.
+     * @return The x-coordinate of the slot.
+     */
+    public double getX(int slot) {
+        return this.x[slot];
+    }
+
+    /**
+     * Gets the y-coordinate of a slot.
+     *
+     * @param slot The slot.
+     * @return The y-coordinate of the slot.
+     */
+    public double getY(int slot) {
+        return this.y[slot];
+    }
+
+    /**
+     * Sets the position of a slot. During a tick of a double-buffered store the position is written to the next tick.
+     *
+     * @param slot The slot.
+     * @param x    The new x-coordinate.
+     * @param y    The new y-coordinate.
+     */
+    public void setPosition(int slot, double x, double y) {
+        if (this.ticking) {
+            this.nextX[slot] = x;
+            this.nextY[slot] = y;
+        } else {
+            this.x[slot] = x;
+            this.y[slot] = y;
+        }
+    }
+
+    /**
+     * Checks whether a direction has been set for a slot.
+     *
+     * @param slot The slot.
+     * @return true if the slot has a direction, false otherwise.
+     */
+    public boolean hasDirection(int slot) {
+        return !Double.isNaN(this.dx[slot]);
+    }
+
+    /**
+     * Gets the x-component of the direction of a slot.
+     *
+     * @param slot The slot.
+     * @return The x-component of the direction, NaN if no direction is set.
+     */
+    public double getDeltaX(int slot) {
+        return this.dx[slot];
+    }
+
+    /**
+     * Gets the y-component of the direction of a slot.
+     *
+     * @param slot The slot.
+     * @return The y-component of the direction, NaN if no direction is set.
+     */
+    public double getDeltaY(int slot) {
+        return this.dy[slot];
+    }
+
+    /**
+     * Sets the direction of a slot. NaN components mean that no direction is set.
+     *
+     * @param slot   The slot.
+     * @param deltaX The x-component of the direction.
+     * @param deltaY The y-component of the direction.
+     */
+    public void setDirection(int slot, double deltaX, double deltaY) {
+        this.dx[slot] = deltaX;
+        this.dy[slot] = deltaY;
+    }
+
+    /**
+     * Gets the speed of a slot.
+     *
+     * @param slot The slot.
+     * @return The speed of the slot.
+     */
+    public double getSpeed(int slot) {
+        return this.speed[slot];
+    }
+
+    /**
+     * Sets the speed of a slot.
+     *
+     * @param slot  The slot.
+     * @param speed The new speed.
+     */
+    public void setSpeed(int slot, double speed) {
+        this.speed[slot] = speed;
+    }
+
+    /**
+     * Gets the identifier of the label of a slot.
+     *
+     * @param slot The slot.
+     * @return The identifier of the label in the label table.
+     */
+    public int getLabel(int slot) {
+        return this.label[slot];
+    }
+
+    /**
+     * Sets the identifier of the label of a slot. During a tick of a double-buffered store the label is written to the next tick.
+     *
+     * @param slot  The slot.
+     * @param label The identifier of the label in the label table.
+     */
+    public void setLabel(int slot, int label) {
+        if (this.ticking)
+            this.nextLabel[slot] = label;
+        else
+            this.label[slot] = label;
+    }
+
+    /**
+     * Gets the program counter of a slot.
+     *
+     * @param slot The slot.
+     * @return The index of the next instruction of the slot.
+     */
+    public int getProgramCounter(int slot) {
+        return this.programCounter[slot];
+    }
+
+    /**
+     * Sets the program counter of a slot.
+     *
+     * @param slot           The slot.
+     * @param programCounter The index of the next instruction of the slot.
+     */
+    public void setProgramCounter(int slot, int programCounter) {
+        this.programCounter[slot] = programCounter;
+    }
+
+    private void allocate(int capacity) {
+        if (this.entities == null) {
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.dx = new double[capacity];
+            this.dy = new double[capacity];
+            this.speed = new double[capacity];
+            this.label = new int[capacity];
+            this.programCounter = new int[capacity];
+            this.entities = new Entity[capacity];
+        } else {
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+            this.dx = Arrays.copyOf(this.dx, capacity);
+            this.dy = Arrays.copyOf(this.dy, capacity);
+            this.speed = Arrays.copyOf(this.speed, capacity);
+            this.label = Arrays.copyOf(this.label, capacity);
+            this.programCounter = Arrays.copyOf(this.programCounter, capacity);
+            this.entities = Arrays.copyOf(this.entities, capacity);
+        }
+        if (this.doubleBuffered) {
+            this.nextX = new double[capacity];
+            this.nextY = new double[capacity];
+            this.nextLabel = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package it.unicam.cs.followme.trace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Trace sink writing binary records to a file from a background thread.
+ * Every recording thread fills its own batch, so recording takes no lock; a full batch is handed
+ * to the writer thread, so the simulation only pays for copying 20 bytes per record. The batches
+ * still being filled are written when the sink is closed, which must happen between ticks.
+ * Every record is made of the tick (a long), the robot, the program counter and the opcode
+ * (three ints), in big-endian order. Records are written batch by batch, so the records of
+ * different threads may not be in the order of their ticks.
+ */
+public class AsyncFileTraceSink implements TraceSink {
+
+    /**
+     * Size in bytes of a record.
+     */
+    public static final int RECORD_SIZE = Long.BYTES + 3 * Integer.BYTES;
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+
+    private final BlockingQueue<ByteBuffer> full;
+
+    private final BlockingQueue<ByteBuffer> free;
+
+    private final Thread writer;
+
+    private final int batchBytes;
+
+    private final Queue<Batch> batches;
+
+    private final ThreadLocal<Batch> local;
+
+    private volatile long tick;
+
+    private volatile IOException failure;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a sink writing to a file, which is created or truncated.
+     *
+     * @param path      The path of the trace file.
+     * @param batchSize The number of records in a batch handed to the writer thread.
+     * @throws IOException              If the file cannot be opened.
+     * @throws IllegalArgumentException If the batch size is not positive.
+     */
+    public AsyncFileTraceSink(Path path, int batchSize) throws IOException {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("The batch size must be positive.");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.batchBytes = batchSize * RECORD_SIZE;
+        this.full = new LinkedBlockingQueue<>();
+        this.free = new LinkedBlockingQueue<>();
+        for (int i = 0; i < 3; i++)
+            this.free.add(ByteBuffer.allocateDirect(this.batchBytes));
+        this.batches = new ConcurrentLinkedQueue<>();
+        this.local = ThreadLocal.withInitial(this::register);
+        this.writer = new Thread(this::write, "trace-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Sets the tick of the records that follow.
+     *
+     * @param tick The number of the tick, starting from 0.
+     */
+    @Override
+    public void tickStarted(long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Appends a record to the batch of the calling thread, handing the batch to the writer thread when full.
+     *
+     * @param robot  The slot of the robot in its swarm state.
+     * @param pc     The program counter at which the step started.
+     * @param opcode The opcode of the instruction at the program counter.
+     * @throws UncheckedIOException If the writer thread failed to write a batch.
+     */
+    @Override
+    public void record(int robot, int pc, int opcode) {
+        if (this.closed)
+            return;
+        Batch batch = this.local.get();
+        batch.buffer.putLong(this.tick).putInt(robot).putInt(pc).putInt(opcode);
+        if (!batch.buffer.hasRemaining())
+            batch.buffer = this.handOff(batch.buffer);
+    }
+
+    /**
+     * Writes the pending records of every thread and waits for the writer thread to finish.
+     *
+     * @throws UncheckedIOException If the trace could not be written.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed)
+            return;
+        this.closed = true;
+        for (Batch batch : this.batches) {
+            if (batch.buffer.position() > 0) {
+                batch.buffer.flip();
+                this.enqueue(batch.buffer);
+            }
+        }
+        this.enqueue(END);
+        try {
+            this.writer.join();
+            this.channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            this.failure = e;
+        }
+        if (this.failure != null)
+            throw new UncheckedIOException(this.failure);
+    }
+
+    private Batch register() {
+        Batch batch = new Batch(ByteBuffer.allocateDirect(this.batchBytes));
+        this.batches.add(batch);
+        return batch;
+    }
+
+    /**
+     * Hands a full buffer to the writer thread, waiting for a written one to be returned in its place.
+     */
+    private ByteBuffer handOff(ByteBuffer buffer) {
+        if (this.failure != null)
+            throw new UncheckedIOException(this.failure);
+        buffer.flip();
+        this.enqueue(buffer);
+        try {
+            return this.free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ByteBuffer.allocateDirect(this.batchBytes);
+        }
+    }
+
+    private void enqueue(ByteBuffer buffer) {
+        try {
+            this.full.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        try {
+            for (ByteBuffer buffer = this.full.take(); buffer != END; buffer = this.full.take()) {
+                try {
+                    while (buffer.hasRemaining())
+                        this.channel.write(buffer);
+                } catch (IOException e) {
+                    this.failure = e;
+                }
+                buffer.clear();
+                this.free.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Batch filled by a single recording thread.
+     */
+    private static final class Batch {
+
+        private ByteBuffer buffer;
+
+        private Batch(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
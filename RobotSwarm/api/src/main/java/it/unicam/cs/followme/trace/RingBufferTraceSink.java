@@ -0,0 +1,170 @@
+package it.unicam.cs.followme.trace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Trace sink keeping the most recent records in memory, overwriting the oldest ones when full.
+ * Records are stored in parallel primitive arrays, so recording does not allocate once the buffers have grown.
+ * Every recording thread appends to its own buffer, so recording takes no lock; the buffers are
+ * merged into the shared ring when the next tick starts and when the records are read, thread
+ * after thread, so within a tick the records of different threads are not interleaved.
+ * The records must only be read between ticks.
+ */
+public class RingBufferTraceSink implements TraceSink {
+
+    private final int capacity;
+
+    private final long[] ticks;
+
+    private final int[] robots;
+
+    private final int[] pcs;
+
+    private final int[] opcodes;
+
+    private final Queue<Buffer> buffers;
+
+    private final ThreadLocal<Buffer> local;
+
+    private long written;
+
+    private long tick;
+
+    /**
+     * Constructs a ring buffer holding up to the given number of records.
+     *
+     * @param capacity The number of records kept in memory.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public RingBufferTraceSink(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive.");
+        this.capacity = capacity;
+        this.ticks = new long[capacity];
+        this.robots = new int[capacity];
+        this.pcs = new int[capacity];
+        this.opcodes = new int[capacity];
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.local = ThreadLocal.withInitial(this::register);
+    }
+
+    /**
+     * Merges the records of the previous tick into the ring and sets the tick of the records that follow.
+     *
+     * @param tick The number of the tick, starting from 0.
+     */
+    @Override
+    public synchronized void tickStarted(long tick) {
+        this.merge();
+        this.tick = tick;
+    }
+
+    /**
+     * Records a step in the buffer of the calling thread, overwriting its oldest record if the buffer is full.
+     *
+     * @param robot  The slot of the robot in its swarm state.
+     * @param pc     The program counter at which the step started.
+     * @param opcode The opcode of the instruction at the program counter.
+     */
+    @Override
+    public void record(int robot, int pc, int opcode) {
+        this.local.get().add(robot, pc, opcode);
+    }
+
+    /**
+     * Gets the number of records received since the buffer was created, including the overwritten ones.
+     *
+     * @return The number of records received.
+     */
+    public synchronized long getWritten() {
+        this.merge();
+        return this.written;
+    }
+
+    /**
+     * Gets the records in the buffer, from the oldest to the most recent.
+     *
+     * @return A list of the records in the buffer.
+     */
+    public synchronized List<TraceRecord> getRecords() {
+        this.merge();
+        int size = (int) Math.min(this.written, this.capacity);
+        List<TraceRecord> records = new ArrayList<>(size);
+        for (long n = this.written - size; n < this.written; n++) {
+            int i = (int) (n % this.capacity);
+            records.add(new TraceRecord(this.ticks[i], this.robots[i], this.pcs[i], this.opcodes[i]));
+        }
+        return records;
+    }
+
+    private Buffer register() {
+        Buffer buffer = new Buffer(this.capacity);
+        this.buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Moves the records of the buffers of the threads into the ring, counting the ones the buffers overwrote.
+     */
+    private void merge() {
+        for (Buffer buffer : this.buffers) {
+            int length = buffer.robots.length;
+            long kept = Math.min(buffer.count, length);
+            this.written += buffer.count - kept;
+            for (long n = buffer.count - kept; n < buffer.count; n++) {
+                int from = (int) (n % length);
+                int to = (int) (this.written++ % this.capacity);
+                this.ticks[to] = this.tick;
+                this.robots[to] = buffer.robots[from];
+                this.pcs[to] = buffer.pcs[from];
+                this.opcodes[to] = buffer.opcodes[from];
+            }
+            buffer.count = 0;
+        }
+    }
+
+    /**
+     * Records of a single thread since the last merge, growing up to the capacity of the ring and
+     * then overwriting its oldest records, as they would be overwritten in the ring anyway.
+     */
+    private static final class Buffer {
+
+        private static final int INITIAL_LENGTH = 64;
+
+        private final int capacity;
+
+        private int[] robots;
+
+        private int[] pcs;
+
+        private int[] opcodes;
+
+        private long count;
+
+        private Buffer(int capacity) {
+            this.capacity = capacity;
+            int length = Math.min(INITIAL_LENGTH, capacity);
+            this.robots = new int[length];
+            this.pcs = new int[length];
+            this.opcodes = new int[length];
+        }
+
+        private void add(int robot, int pc, int opcode) {
+            int length = this.robots.length;
+            if (this.count == length && length < this.capacity) {
+                length = (int) Math.min(this.capacity, 2L * length);
+                this.robots = Arrays.copyOf(this.robots, length);
+                this.pcs = Arrays.copyOf(this.pcs, length);
+                this.opcodes = Arrays.copyOf(this.opcodes, length);
+            }
+            int i = (int) (this.count++ % length);
+            this.robots[i] = robot;
+            this.pcs[i] = pc;
+            this.opcodes[i] = opcode;
+        }
+    }
+}
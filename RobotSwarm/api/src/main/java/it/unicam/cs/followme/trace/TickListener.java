@@ -0,0 +1,27 @@
+package it.unicam.cs.followme.trace;
+
+import it.unicam.cs.followme.models.SwarmState;
+
+/**
+ * Observer of a simulation, notified with the state of the swarm after every tick.
+ * Listeners are called on the thread stepping the simulation, between two ticks, so they read a
+ * consistent state but delay the next tick for as long as they run.
+ * Listening is disabled by using {@link #NO_OP}, which the simulator recognizes and skips.
+ */
+@FunctionalInterface
+public interface TickListener {
+
+    /**
+     * Listener ignoring every tick, used when listening is disabled.
+     */
+    TickListener NO_OP = (tick, state) -> {
+    };
+
+    /**
+     * Notifies the listener that a tick is done.
+     *
+     * @param tick  The number of the tick, starting from 0.
+     * @param state The state of the swarm after the tick.
+     */
+    void tickDone(long tick, SwarmState state);
+}
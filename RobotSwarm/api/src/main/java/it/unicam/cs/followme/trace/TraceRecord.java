@@ -0,0 +1,13 @@
+package it.unicam.cs.followme.trace;
+
+/**
+ * Record of a step executed by a robot.
+ *
+ * @param tick   The tick in which the step was executed.
+ * @param robot  The slot of the robot in its swarm state at the time of the step, which a later
+ *               removal of another robot may have given to a different robot.
+ * @param pc     The program counter at which the step started.
+ * @param opcode The opcode of the instruction at the program counter.
+ */
+public record TraceRecord(long tick, int robot, int pc, int opcode) {
+}
@@ -0,0 +1,49 @@
+package it.unicam.cs.followme.trace;
+
+/**
+ * Destination of the trace of a simulation, receiving a record for every step executed by a robot.
+ * Tracing is disabled by using {@link #NO_OP}, which robots recognize and skip without calling it.
+ * Implementations must accept records from several threads, as robots may be stepped in parallel,
+ * and should not make the threads contend for a lock on every record. {@link #tickStarted(long)}
+ * and {@link #close()} are only called between ticks, while no robot is being stepped.
+ * Robots are identified by their slot in the swarm state, which is stable as long as no robot is
+ * removed: removing a robot moves the robot in the last slot into the slot of the removed one.
+ */
+public interface TraceSink extends AutoCloseable {
+
+    /**
+     * Sink discarding every record, used when tracing is disabled.
+     */
+    TraceSink NO_OP = new TraceSink() {
+        @Override
+        public void tickStarted(long tick) {
+        }
+
+        @Override
+        public void record(int robot, int pc, int opcode) {
+        }
+    };
+
+    /**
+     * Notifies the sink that a tick has started, so that the records that follow belong to it.
+     *
+     * @param tick The number of the tick, starting from 0.
+     */
+    void tickStarted(long tick);
+
+    /**
+     * Records a step executed by a robot.
+     *
+     * @param robot  The slot of the robot in its swarm state at the time of the step.
+     * @param pc     The program counter at which the step started.
+     * @param opcode The opcode of the instruction at the program counter.
+     */
+    void record(int robot, int pc, int opcode);
+
+    /**
+     * Flushes and releases the resources of the sink.
+     */
+    @Override
+    default void close() {
+    }
+}
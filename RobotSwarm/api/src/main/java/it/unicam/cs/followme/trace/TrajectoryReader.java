@@ -0,0 +1,199 @@
+package it.unicam.cs.followme.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader of the trajectory files written by a {@link TrajectoryRecorder}, decoding one tick at a time.
+ * The positions and labels of the current tick are read by slot after a call to {@link #next()}.
+ */
+public class TrajectoryReader implements AutoCloseable {
+
+    private final DataInputStream input;
+
+    private final Inflater inflater;
+
+    private final List<String> labels;
+
+    private long tick;
+
+    private int count;
+
+    private long[] x;
+
+    private long[] y;
+
+    private int[] label;
+
+    private byte[] columns;
+
+    private byte[] payload;
+
+    private int position;
+
+    /**
+     * Constructs a reader of a trajectory file, reading its header.
+     *
+     * @param path The path of the trajectory file.
+     * @throws IOException              If the file cannot be read.
+     * @throws IllegalArgumentException If the file is not a trajectory file.
+     */
+    public TrajectoryReader(Path path) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        try {
+            if (this.input.readInt() != TrajectoryRecorder.MAGIC || this.input.readInt() != TrajectoryRecorder.VERSION)
+                throw new IllegalArgumentException("The file is not a trajectory file.");
+            this.inflater = this.input.readInt() != 0 ? new Inflater() : null;
+        } catch (EOFException e) {
+            this.input.close();
+            throw new IllegalArgumentException("The file is not a trajectory file.");
+        }
+        this.labels = new ArrayList<>();
+        this.x = new long[0];
+        this.y = new long[0];
+        this.label = new int[0];
+        this.columns = new byte[0];
+        this.payload = new byte[0];
+    }
+
+    /**
+     * Reads the next tick of the file.
+     *
+     * @return true if a tick was read, false if the file has no more ticks.
+     * @throws IOException              If the file cannot be read.
+     * @throws IllegalArgumentException If the tick is malformed.
+     */
+    public boolean next() throws IOException {
+        try {
+            this.tick = this.input.readLong();
+        } catch (EOFException e) {
+            return false;
+        }
+        this.count = this.input.readInt();
+        for (int names = this.input.readInt(); names > 0; names--) {
+            byte[] name = new byte[this.input.readInt()];
+            this.input.readFully(name);
+            this.labels.add(new String(name, StandardCharsets.UTF_8));
+        }
+        int length = this.input.readInt();
+        int stored = this.input.readInt();
+        if (this.columns.length < length)
+            this.columns = new byte[length];
+        if (this.inflater == null) {
+            this.input.readFully(this.columns, 0, length);
+        } else {
+            if (this.payload.length < stored)
+                this.payload = new byte[stored];
+            this.input.readFully(this.payload, 0, stored);
+            this.inflater.reset();
+            this.inflater.setInput(this.payload, 0, stored);
+            try {
+                if (this.inflater.inflate(this.columns, 0, length) != length)
+                    throw new IllegalArgumentException("Malformed tick " + this.tick + ".");
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("Malformed tick " + this.tick + ".");
+            }
+        }
+        if (this.x.length < this.count) {
+            this.x = Arrays.copyOf(this.x, this.count);
+            this.y = Arrays.copyOf(this.y, this.count);
+            this.label = Arrays.copyOf(this.label, this.count);
+        }
+        this.position = Integer.BYTES;
+        for (int slot = 0; slot < this.count; slot++)
+            this.x[slot] += unZigZag(this.getVarLong());
+        this.position += Integer.BYTES;
+        for (int slot = 0; slot < this.count; slot++)
+            this.y[slot] += unZigZag(this.getVarLong());
+        this.position += Integer.BYTES;
+        for (int slot = 0; slot < this.count; slot++)
+            this.label[slot] ^= (int) this.getVarLong();
+        return true;
+    }
+
+    /**
+     * Gets the number of the current tick.
+     *
+     * @return The number of the current tick, starting from 0.
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Gets the number of slots recorded in the current tick.
+     *
+     * @return The number of slots of the current tick.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Gets the x-coordinate of a slot in the current tick.
+     *
+     * @param slot The slot.
+     * @return The x-coordinate of the slot.
+     */
+    public double getX(int slot) {
+        return Double.longBitsToDouble(this.x[slot]);
+    }
+
+    /**
+     * Gets the y-coordinate of a slot in the current tick.
+     *
+     * @param slot The slot.
+     * @return The y-coordinate of the slot.
+     */
+    public double getY(int slot) {
+        return Double.longBitsToDouble(this.y[slot]);
+    }
+
+    /**
+     * Gets the label of a slot in the current tick.
+     *
+     * @param slot The slot.
+     * @return The label of the slot, the empty string if the slot is not signaling.
+     */
+    public String getLabel(int slot) {
+        return this.labels.get(this.label[slot]);
+    }
+
+    /**
+     * Releases the file and the resources of the reader.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.inflater != null)
+            this.inflater.end();
+        this.input.close();
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long getVarLong() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (this.position >= this.columns.length)
+                throw new IllegalArgumentException("Malformed tick " + this.tick + ".");
+            byte b = this.columns[this.position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package it.unicam.cs.followme.trace;
+
+import it.unicam.cs.followme.models.LabelTable;
+import it.unicam.cs.followme.models.SwarmState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Tick listener appending the position and label of every robot after every tick to a columnar file,
+ * encoded and written from a background thread.
+ * The simulation only copies the columns of the swarm state into a frame taken from a fixed pool;
+ * when the writer falls behind by as many ticks as the pool holds, the simulation waits for it,
+ * so the memory used by the recorder stays bounded whatever the length of the run.
+ * <p>
+ * The file starts with a header made of a magic number, a version and a flag telling whether the
+ * blocks are compressed. Every tick is then a block made of the tick (a long), the number of slots,
+ * the labels first used in the tick, as their number followed by their names, and the columns of
+ * the x-coordinates, the y-coordinates and the labels, each prefixed by its length in bytes.
+ * Coordinates are delta-encoded against the previous tick: the difference between the bits of a
+ * coordinate and the bits of the coordinate of the same slot in the previous tick is zigzag-encoded
+ * and written as a variable-length integer, so a robot standing still takes one byte per coordinate
+ * and a small move takes fewer bytes than a large one. Labels are XORed with the label of the same
+ * slot in the previous tick and written as variable-length integers.
+ * A compressed block deflates its columns. Every number of the file is big-endian.
+ */
+public class TrajectoryRecorder implements TickListener, AutoCloseable {
+
+    /**
+     * Magic number starting a trajectory file.
+     */
+    public static final int MAGIC = 0x52535452;
+
+    /**
+     * Version of the format of the trajectory files.
+     */
+    public static final int VERSION = 1;
+
+    private static final Frame END = new Frame();
+
+    private final FileChannel channel;
+
+    private final boolean compressed;
+
+    private final BlockingQueue<Frame> full;
+
+    private final BlockingQueue<Frame> free;
+
+    private final Thread writer;
+
+    private int declaredLabels;
+
+    private volatile IOException failure;
+
+    private boolean closed;
+
+    /**
+     * Constructs a recorder writing to a file, which is created or truncated.
+     *
+     * @param path         The path of the trajectory file.
+     * @param pendingTicks The number of recorded ticks the writer thread may fall behind the simulation.
+     * @param compressed   Whether the columns of every tick are deflated.
+     * @throws IOException              If the file cannot be opened or its header cannot be written.
+     * @throws IllegalArgumentException If the number of pending ticks is not positive.
+     */
+    public TrajectoryRecorder(Path path, int pendingTicks, boolean compressed) throws IOException {
+        if (pendingTicks <= 0)
+            throw new IllegalArgumentException("The number of pending ticks must be positive.");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.compressed = compressed;
+        ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES).putInt(MAGIC).putInt(VERSION).putInt(compressed ? 1 : 0);
+        header.flip();
+        while (header.hasRemaining())
+            this.channel.write(header);
+        this.full = new ArrayBlockingQueue<>(pendingTicks + 1);
+        this.free = new ArrayBlockingQueue<>(pendingTicks);
+        for (int i = 0; i < pendingTicks; i++)
+            this.free.add(new Frame());
+        this.declaredLabels = 0;
+        this.writer = new Thread(this::write, "trajectory-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Copies the positions and labels of the swarm into a frame and hands it to the writer thread,
+     * waiting for a free frame if the writer has fallen behind.
+     *
+     * @param tick  The number of the tick, starting from 0.
+     * @param state The state of the swarm after the tick.
+     * @throws UncheckedIOException If the writer thread failed to write a tick.
+     */
+    @Override
+    public synchronized void tickDone(long tick, SwarmState state) {
+        if (this.closed)
+            return;
+        if (this.failure != null)
+            throw new UncheckedIOException(this.failure);
+        Frame frame;
+        try {
+            frame = this.free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        frame.capture(tick, state, this.declaredLabels);
+        this.declaredLabels += frame.labels.size();
+        this.enqueue(frame);
+    }
+
+    /**
+     * Writes the pending ticks and waits for the writer thread to finish.
+     *
+     * @throws UncheckedIOException If the trajectory could not be written.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed)
+            return;
+        this.closed = true;
+        this.enqueue(END);
+        try {
+            this.writer.join();
+            this.channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            this.failure = e;
+        }
+        if (this.failure != null)
+            throw new UncheckedIOException(this.failure);
+    }
+
+    private void enqueue(Frame frame) {
+        try {
+            this.full.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        Encoder encoder = new Encoder(this.compressed);
+        try {
+            for (Frame frame = this.full.take(); frame != END; frame = this.full.take()) {
+                if (this.failure == null) {
+                    try {
+                        ByteBuffer block = encoder.encode(frame);
+                        while (block.hasRemaining())
+                            this.channel.write(block);
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+                this.free.put(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            encoder.end();
+        }
+    }
+
+    /**
+     * Copy of the columns of a swarm state after a tick, reused from tick to tick.
+     */
+    private static final class Frame {
+
+        private long tick;
+
+        private int count;
+
+        private double[] x = new double[0];
+
+        private double[] y = new double[0];
+
+        private int[] label = new int[0];
+
+        private final List<String> labels = new ArrayList<>();
+
+        private void capture(long tick, SwarmState state, int declaredLabels) {
+            this.tick = tick;
+            this.count = state.size();
+            if (this.x.length < this.count) {
+                this.x = new double[this.count];
+                this.y = new double[this.count];
+                this.label = new int[this.count];
+            }
+            for (int slot = 0; slot < this.count; slot++) {
+                this.x[slot] = state.getX(slot);
+                this.y[slot] = state.getY(slot);
+                this.label[slot] = state.getLabel(slot);
+            }
+            this.labels.clear();
+            LabelTable table = state.getLabels();
+            for (int id = declaredLabels; id < table.size(); id++)
+                this.labels.add(table.name(id));
+        }
+    }
+
+    /**
+     * Encoder of the blocks of the ticks, owned by the writer thread, which keeps the columns of the previous tick.
+     */
+    private static final class Encoder {
+
+        private final Deflater deflater;
+
+        private long[] previousX = new long[0];
+
+        private long[] previousY = new long[0];
+
+        private int[] previousLabel = new int[0];
+
+        private byte[] columns = new byte[1024];
+
+        private byte[] deflated = new byte[1024];
+
+        private int length;
+
+        private Encoder(boolean compressed) {
+            this.deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+        }
+
+        private ByteBuffer encode(Frame frame) {
+            int count = frame.count;
+            if (this.previousX.length < count) {
+                this.previousX = Arrays.copyOf(this.previousX, count);
+                this.previousY = Arrays.copyOf(this.previousY, count);
+                this.previousLabel = Arrays.copyOf(this.previousLabel, count);
+            }
+            this.length = 0;
+            int start = this.reserve();
+            for (int slot = 0; slot < count; slot++) {
+                long bits = Double.doubleToRawLongBits(frame.x[slot]);
+                this.putVarLong(zigZag(bits - this.previousX[slot]));
+                this.previousX[slot] = bits;
+            }
+            this.patch(start);
+            start = this.reserve();
+            for (int slot = 0; slot < count; slot++) {
+                long bits = Double.doubleToRawLongBits(frame.y[slot]);
+                this.putVarLong(zigZag(bits - this.previousY[slot]));
+                this.previousY[slot] = bits;
+            }
+            this.patch(start);
+            start = this.reserve();
+            for (int slot = 0; slot < count; slot++) {
+                this.putVarLong((frame.label[slot] ^ this.previousLabel[slot]) & 0xFFFFFFFFL);
+                this.previousLabel[slot] = frame.label[slot];
+            }
+            this.patch(start);
+            byte[] payload = this.columns;
+            int payloadLength = this.length;
+            if (this.deflater != null) {
+                this.deflater.reset();
+                this.deflater.setInput(this.columns, 0, this.length);
+                this.deflater.finish();
+                payloadLength = 0;
+                while (!this.deflater.finished()) {
+                    if (payloadLength == this.deflated.length)
+                        this.deflated = Arrays.copyOf(this.deflated, 2 * this.deflated.length);
+                    payloadLength += this.deflater.deflate(this.deflated, payloadLength, this.deflated.length - payloadLength);
+                }
+                payload = this.deflated;
+            }
+            int labelsLength = 0;
+            List<byte[]> names = new ArrayList<>(frame.labels.size());
+            for (String label : frame.labels) {
+                byte[] name = label.getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                labelsLength += Integer.BYTES + name.length;
+            }
+            ByteBuffer block = ByteBuffer.allocate(Long.BYTES + 4 * Integer.BYTES + labelsLength + payloadLength);
+            block.putLong(frame.tick).putInt(count).putInt(names.size());
+            for (byte[] name : names)
+                block.putInt(name.length).put(name);
+            block.putInt(this.length).putInt(payloadLength).put(payload, 0, payloadLength);
+            return block.flip();
+        }
+
+        private int reserve() {
+            this.ensure(Integer.BYTES);
+            this.length += Integer.BYTES;
+            return this.length;
+        }
+
+        private void patch(int start) {
+            int size = this.length - start;
+            for (int i = 0; i < Integer.BYTES; i++)
+                this.columns[start - Integer.BYTES + i] = (byte) (size >>> (24 - 8 * i));
+        }
+
+        private static long zigZag(long delta) {
+            return (delta << 1) ^ (delta >> 63);
+        }
+
+        private void putVarLong(long value) {
+            this.ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                this.columns[this.length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.columns[this.length++] = (byte) value;
+        }
+
+        private void ensure(int bytes) {
+            if (this.length + bytes > this.columns.length)
+                this.columns = Arrays.copyOf(this.columns, Math.max(2 * this.columns.length, this.length + bytes));
+        }
+
+        private void end() {
+            if (this.deflater != null)
+                this.deflater.end();
+        }
+    }
+}
@@ -65,5 +65,30 @@ public class Direction {
         }
     }
 
-}
+    /**
+     * Checks if this direction is equal to another.
+     *
+     * @param obj The object to compare for equality.
+     * @return true if the directions are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+
+        Direction otherDirection = (Direction) obj;
+
+        return Double.compare(otherDirection.deltaX, deltaX) == 0 && Double.compare(otherDirection.deltaY, deltaY) == 0;
+    }
 
+    /**
+     * Gets the hash code of this direction.
+     *
+     * @return The hash code of this direction.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(deltaX) + Double.hashCode(deltaY);
+    }
+
+}
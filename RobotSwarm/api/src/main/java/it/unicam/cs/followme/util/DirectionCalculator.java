@@ -3,6 +3,8 @@ package it.unicam.cs.followme.util;
 /**
  * Interface for a DirectionCalculator that provides a method to calculate the direction
  * from a current position to a target position.
+ * Directions are normalized with a single inverse square root; the direction towards the
+ * current position itself is (0, 0), so an entity steered towards where it stands does not move.
  */
 public interface DirectionCalculator {
 
@@ -16,15 +18,60 @@ public interface DirectionCalculator {
     static Direction calculateDirection(Point currentPosition, Point targetPosition) {
         double deltaX = targetPosition.getX() - currentPosition.getX();
         double deltaY = targetPosition.getY() - currentPosition.getY();
+        double inverseLength = inverseLength(deltaX, deltaY);
+        return new Direction(normalize(deltaX, inverseLength), normalize(deltaY, inverseLength));
+    }
 
-        // Calculate the angle between the two points
-        double angle = Math.atan2(deltaY, deltaX);
+    /**
+     * Calculates the inverse of the length of a vector, so that multiplying its components by
+     * the result normalizes it. The inverse length of a zero-length vector is 0, which normalizes it to (0, 0).
+     *
+     * @param deltaX The x-component of the vector.
+     * @param deltaY The y-component of the vector.
+     * @return The inverse of the length of the vector, or 0 if the vector has no length.
+     */
+    static double inverseLength(double deltaX, double deltaY) {
+        double squaredLength = deltaX * deltaX + deltaY * deltaY;
+        return squaredLength > 0 ? 1 / Math.sqrt(squaredLength) : 0;
+    }
 
-        // Normalize the angle between -PI and PI and convert to normalized delta x and delta y
-        double normalizedDeltaX = Math.cos(angle);
-        double normalizedDeltaY = Math.sin(angle);
+    /**
+     * Normalizes a component of a vector by the inverse of the length of the vector, clamping the
+     * result to [-1, 1] since rounding may push it past the unit range the direction checks.
+     * Every path computing a direction normalizes through this method, so they agree to the last bit.
+     *
+     * @param delta         The component of the vector.
+     * @param inverseLength The inverse of the length of the vector.
+     * @return The normalized component.
+     */
+    static double normalize(double delta, double inverseLength) {
+        return Math.max(-1, Math.min(1, delta * inverseLength));
+    }
 
-        return new Direction(normalizedDeltaX, normalizedDeltaY);
+    /**
+     * Calculates in one pass the directions from arrays of current positions to arrays of target positions.
+     * The components of the i-th direction are written at index i of the output arrays.
+     *
+     * @param currentX The x-coordinates of the current positions.
+     * @param currentY The y-coordinates of the current positions.
+     * @param targetX  The x-coordinates of the target positions.
+     * @param targetY  The y-coordinates of the target positions.
+     * @param deltaX   The array receiving the x-components of the directions.
+     * @param deltaY   The array receiving the y-components of the directions.
+     * @param count    The number of directions, read from the start of the arrays.
+     * @throws IllegalArgumentException If an array is shorter than the number of directions.
+     */
+    static void calculateDirections(double[] currentX, double[] currentY, double[] targetX, double[] targetY,
+                                    double[] deltaX, double[] deltaY, int count) {
+        if (count < 0 || currentX.length < count || currentY.length < count || targetX.length < count
+                || targetY.length < count || deltaX.length < count || deltaY.length < count)
+            throw new IllegalArgumentException("The arrays must hold the given number of directions.");
+        for (int i = 0; i < count; i++) {
+            double dx = targetX[i] - currentX[i];
+            double dy = targetY[i] - currentY[i];
+            double inverseLength = inverseLength(dx, dy);
+            deltaX[i] = normalize(dx, inverseLength);
+            deltaY[i] = normalize(dy, inverseLength);
+        }
     }
 }
-
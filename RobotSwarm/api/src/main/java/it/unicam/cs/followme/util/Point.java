@@ -74,6 +74,84 @@ public class Point {
         return Math.sqrt(dx * dx + dy * dy);
     }
 
+    /**
+     * Calculates the squared distance between this point and another point, without taking a square root.
+     *
+     * @param otherPoint The other point to which the squared distance is calculated.
+     * @return The squared distance between this point and the other point.
+     */
+    public double distanceSquared(Point otherPoint) {
+        return distanceSquared(this.x, this.y, otherPoint.x, otherPoint.y);
+    }
+
+    /**
+     * Checks whether another point is within a radius from this point, boundary included.
+     *
+     * @param otherPoint The other point.
+     * @param radius     The radius around this point.
+     * @return true if the other point is within the radius, false otherwise.
+     */
+    public boolean isWithin(Point otherPoint, double radius) {
+        return isWithin(this.x, this.y, otherPoint.x, otherPoint.y, radius);
+    }
+
+    /**
+     * Calculates the squared distance between two points given by their coordinates.
+     *
+     * @param x1 The x-coordinate of the first point.
+     * @param y1 The y-coordinate of the first point.
+     * @param x2 The x-coordinate of the second point.
+     * @param y2 The y-coordinate of the second point.
+     * @return The squared distance between the two points.
+     */
+    public static double distanceSquared(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Checks whether two points given by their coordinates are within a radius from each other, boundary included.
+     * No point is within a negative radius.
+     *
+     * @param x1     The x-coordinate of the first point.
+     * @param y1     The y-coordinate of the first point.
+     * @param x2     The x-coordinate of the second point.
+     * @param y2     The y-coordinate of the second point.
+     * @param radius The radius.
+     * @return true if the points are within the radius from each other, false otherwise.
+     */
+    public static boolean isWithin(double x1, double y1, double x2, double y2, double radius) {
+        return radius >= 0 && distanceSquared(x1, y1, x2, y2) <= radius * radius;
+    }
+
+    /**
+     * Selects, among points given by parallel coordinate arrays, the ones within a radius from a center.
+     * The indexes of the selected points are written in increasing order at the start of the result array.
+     *
+     * @param x      The x-coordinate of the center.
+     * @param y      The y-coordinate of the center.
+     * @param radius The radius around the center.
+     * @param xs     The x-coordinates of the points.
+     * @param ys     The y-coordinates of the points.
+     * @param count  The number of points, read from the start of the coordinate arrays.
+     * @param result The array receiving the indexes of the selected points, at least count long.
+     * @return The number of selected points.
+     */
+    public static int selectWithin(double x, double y, double radius, double[] xs, double[] ys, int count, int[] result) {
+        if (radius < 0)
+            return 0;
+        double squaredRadius = radius * radius;
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            if (dx * dx + dy * dy <= squaredRadius)
+                result[selected++] = i;
+        }
+        return selected;
+    }
+
     /**
      * Returns a string representation of the point in the format "(x, y)".
      *
@@ -0,0 +1,102 @@
+package it.unicam.cs.followme.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Random stream of the SplitMix64 algorithm, the one of {@link java.util.SplittableRandom}, whose
+ * whole state is a seed and an odd gamma added to it at every draw. Unlike a SplittableRandom its
+ * state can be read, so a stream can be saved and resumed without drawing from it.
+ */
+public final class SplitMix64 implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long seed;
+
+    private final long gamma;
+
+    /**
+     * Constructs an unseeded stream.
+     */
+    public SplitMix64() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Constructs a stream with the given seed.
+     *
+     * @param seed The seed of the stream.
+     */
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Constructs a stream resuming from the given state.
+     *
+     * @param seed  The seed of the stream.
+     * @param gamma The value added to the seed at every draw.
+     * @throws IllegalArgumentException If the gamma is even.
+     */
+    public SplitMix64(long seed, long gamma) {
+        if ((gamma & 1) == 0)
+            throw new IllegalArgumentException("The gamma must be odd.");
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Gets the seed of the stream, which together with its gamma is the state of the stream.
+     *
+     * @return The seed of the stream.
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Gets the value added to the seed of the stream at every draw.
+     *
+     * @return The gamma of the stream.
+     */
+    public long getGamma() {
+        return this.gamma;
+    }
+
+    /**
+     * Splits off a new stream, drawing its seed and gamma from this one.
+     *
+     * @return The new stream.
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(this.nextLong(), mixGamma(this.nextSeed()));
+    }
+
+    /**
+     * Draws a random long value.
+     *
+     * @return The value drawn.
+     */
+    @Override
+    public long nextLong() {
+        return mix64(this.nextSeed());
+    }
+
+    private long nextSeed() {
+        return this.seed += this.gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+    }
+}
@@ -0,0 +1,96 @@
+package it.unicam.cs.followme.api;
+
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.command.ContinueCommand;
+import it.unicam.cs.followme.command.ForeverCommand;
+import it.unicam.cs.followme.command.MoveCommand;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.command.StopCommand;
+import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.utilities.ShapeData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+public class AllocationTest {
+
+    private static final int CALLS = 10_000;
+
+    private RobotEnvironment environment;
+
+    private Entity robot;
+
+    @BeforeEach
+    public void setUp() {
+        environment = new RobotEnvironment(5);
+        for (int i = 0; i < 100; i++) {
+            Entity entity = new Robot(new Point(i % 10, i / 10));
+            if (i % 2 == 0)
+                entity.setLabel("LABEL");
+            environment.addEntity(entity);
+        }
+        environment.addShape(new ShapeData("LABEL", "CIRCLE", new double[]{50, 50, 1}));
+        environment.addShape(new ShapeData("LABEL", "RECTANGLE", new double[]{-1, -1, 2, 2}));
+        robot = environment.getEntities().get(0);
+    }
+
+    @Test
+    public void testViewsDoNotAllocate() {
+        assertTrue(allocatedBytes(() -> {
+            environment.getEntities();
+            environment.getShapes();
+        }) < CALLS);
+    }
+
+    @Test
+    public void testQueriesDoNotAllocate() {
+        assertTrue(allocatedBytes(() -> robot.getNeighbors(3)) < CALLS);
+        assertTrue(allocatedBytes(robot::getCommonSignal) < CALLS);
+        assertTrue(allocatedBytes(() -> robot.isInsideAShape("LABEL")) < CALLS);
+    }
+
+    @Test
+    public void testMovementTickDoesNotAllocate() {
+        ForeverCommand loop = new ForeverCommand();
+        loop.addCommand(new MoveCommand(new Point(5, 5), 1));
+        loop.addCommand(new ContinueCommand(3));
+        loop.addCommand(new StopCommand());
+        loop.addCommand(new ContinueCommand(1));
+        Program program = Program.compile(List.of(loop));
+        environment.getEntities().forEach(entity -> entity.addProgram(program));
+        RobotSwarmSimulator simulator = new RobotSwarmSimulator(environment);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        simulator.step(1, Double.MAX_VALUE, CALLS);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        assertEquals(CALLS, simulator.step(1, Double.MAX_VALUE, CALLS).ticks());
+        assertTrue(threads.getCurrentThreadAllocatedBytes() - before < CALLS);
+    }
+
+    @Test
+    public void testTickDoesNotCopyViews() {
+        environment.tickStarted();
+        environment.addEntity(new Robot(new Point(0, 0)));
+        assertEquals(100, environment.getEntityCount());
+        assertSame(environment.getEntities(), environment.getEntities());
+        environment.tickDone();
+        assertEquals(101, environment.getEntityCount());
+    }
+
+    /**
+     * Counts the bytes allocated by the current thread while running an action many times, after a warm-up.
+     */
+    private static long allocatedBytes(Runnable action) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < CALLS; i++)
+            action.run();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < CALLS; i++)
+            action.run();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+}
@@ -0,0 +1,46 @@
+package it.unicam.cs.followme.api;
+
+import it.unicam.cs.followme.command.*;
+import it.unicam.cs.followme.ensemble.Ensemble;
+import it.unicam.cs.followme.ensemble.RunResult;
+import it.unicam.cs.followme.ensemble.Scenario;
+import it.unicam.cs.followme.ensemble.Variant;
+import it.unicam.cs.followme.models.LabelTable;
+import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.utilities.ShapeData;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EnsembleTest {
+
+    @Test
+    public void testRunsAreIndependentOfParallelism() {
+        LabelTable labels = new LabelTable();
+        RepeatCommand loop = new RepeatCommand(20);
+        loop.addCommand(new RandomMoveCommand(new Point(-10, -10), new Point(10, 10), 1));
+        loop.addCommand(new SignalCommand("ENSEMBLE", labels));
+        loop.addCommand(new FollowCommand("ENSEMBLE", 5, 1, labels));
+        Scenario scenario = new Scenario("sweep", Program.compile(List.of(loop)),
+                List.of(new ShapeData("ZONE", "CIRCLE", new double[]{0, 0, 10})), 5);
+        List<Variant> variants = new ArrayList<>();
+        for (int robots : new int[]{0, 10, 50})
+            for (long seed = 0; seed < 4; seed++)
+                variants.add(new Variant(scenario, robots, seed, 1, 30));
+        List<RunResult> sequential = new Ensemble(1).run(variants);
+        List<RunResult> parallel = new Ensemble(4).run(variants);
+        assertEquals(variants.size(), parallel.size());
+        for (int i = 0; i < variants.size(); i++) {
+            assertSame(variants.get(i), parallel.get(i).variant());
+            assertEquals(30, parallel.get(i).summary().ticks());
+            assertEquals(sequential.get(i).centroidX(), parallel.get(i).centroidX());
+            assertEquals(sequential.get(i).centroidY(), parallel.get(i).centroidY());
+        }
+        assertTrue(Double.isNaN(parallel.get(0).centroidX()));
+        assertNotEquals(parallel.get(4).centroidX(), parallel.get(5).centroidX());
+        assertEquals(variants.size() + 1, Ensemble.toTable(parallel).lines().count());
+        assertThrows(IllegalArgumentException.class, () -> new Variant(scenario, -1, 0, 1, 30));
+    }
+}
@@ -0,0 +1,92 @@
+package it.unicam.cs.followme.api;
+
+import it.unicam.cs.followme.command.*;
+import it.unicam.cs.followme.models.LabelTable;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.utilities.ShapeData;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+
+public class ProgramTest {
+
+    @Test
+    public void testRepeatCountsIterations() {
+        RepeatCommand repeat = new RepeatCommand(2);
+        repeat.addCommand(new MoveCommand(new Point(10, 0), 1));
+        repeat.addCommand(new ContinueCommand(1));
+        RobotEnvironment environment = new RobotEnvironment();
+        Program program = Program.compile(List.of(repeat, new SignalCommand("DONE", environment.getLabels())));
+        Robot robot = new Robot(new Point(0, 0));
+        environment.addEntity(robot);
+        robot.addProgram(program);
+        for (int i = 0; i < 4; i++)
+            robot.executeNextInstruction();
+        assertEquals(new Point(2, 0), robot.getPosition());
+        assertEquals("", robot.signal());
+        robot.executeNextInstruction();
+        assertEquals("DONE", robot.signal());
+        assertFalse(robot.hasNextInstruction());
+    }
+
+    @Test
+    public void testProgramIsShared() {
+        RepeatCommand repeat = new RepeatCommand(1);
+        repeat.addCommand(new SignalCommand("LABEL", new LabelTable()));
+        Program program = Program.compile(List.of(repeat));
+        assertEquals(program, Program.compile(List.of(repeat)));
+        assertEquals(program.fingerprint(), Program.compile(List.of(repeat)).fingerprint());
+        assertNotEquals(program, Program.compile(List.of(repeat, new StopCommand())));
+        Robot first = new Robot(new Point(0, 0));
+        Robot second = new Robot(new Point(0, 0));
+        first.addProgram(program);
+        second.addProgram(program);
+        first.executeNextInstruction();
+        first.executeNextInstruction();
+        assertEquals("LABEL", first.signal());
+        assertFalse(first.hasNextInstruction());
+        assertEquals("", second.signal());
+        second.executeNextInstruction();
+        assertEquals("LABEL", second.signal());
+    }
+
+    @Test
+    public void testUntilAndEmptyLoops() {
+        RobotEnvironment environment = new RobotEnvironment();
+        environment.addShape(new ShapeData("AREA", "CIRCLE", new double[]{0, 0, 1}));
+        UntilCommand until = new UntilCommand("AREA", environment.getLabels());
+        until.addCommand(new SignalCommand("OUTSIDE", environment.getLabels()));
+        Robot robot = new Robot(new Point(0, 0));
+        environment.addEntity(robot);
+        robot.addProgram(Program.compile(List.of(until, new ForeverCommand())));
+        robot.executeNextInstruction();
+        assertEquals("", robot.signal());
+        assertTrue(robot.hasNextInstruction());
+        robot.executeNextInstruction();
+        assertTrue(robot.hasNextInstruction());
+    }
+
+    @Test
+    public void testProgramIsBoundToItsLabels() {
+        RobotEnvironment environment = new RobotEnvironment();
+        RobotEnvironment other = new RobotEnvironment();
+        Program program = Program.compile(List.of(new SignalCommand("LABEL", environment.getLabels())));
+        assertSame(environment.getLabels(), program.getLabels());
+        assertNull(Program.compile(List.of(new StopCommand())).getLabels());
+        assertThrows(IllegalArgumentException.class, () -> Program.compile(
+                List.of(new SignalCommand("LABEL", environment.getLabels()), new SignalCommand("LABEL", other.getLabels()))));
+        Robot robot = new Robot(new Point(0, 0));
+        robot.setLabel("OTHER");
+        robot.addProgram(program);
+        assertEquals("OTHER", robot.signal());
+        assertThrows(IllegalArgumentException.class, () -> other.addEntity(robot));
+        environment.addEntity(robot);
+        robot.executeNextInstruction();
+        assertEquals("LABEL", robot.signal());
+        Robot attached = new Robot(new Point(0, 0));
+        other.addEntity(attached);
+        assertThrows(IllegalArgumentException.class, () -> attached.addProgram(program));
+    }
+}
@@ -1,13 +1,22 @@
 package it.unicam.cs.followme.api;
 
+import it.unicam.cs.followme.io.LoadSummary;
+import it.unicam.cs.followme.io.RobotLoader;
 import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.Centroid;
 import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.LabelTable;
 import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.util.Point;
 import it.unicam.cs.followme.utilities.ShapeData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.SplittableRandom;
 
 public class RobotEnvironmentTest {
 
@@ -72,6 +81,151 @@ public class RobotEnvironmentTest {
         assertTrue(shapesWithLabel.contains(shape));
     }
 
+    @Test
+    public void testGetEntitiesInRange() {
+        Entity near = new Robot(new Point(3, 4));
+        Entity far = new Robot(new Point(30, 40));
+        environment.addEntity(near);
+        environment.addEntity(far);
+        List<Entity> inRange = environment.getEntitiesInRange(new Point(0, 0), 5);
+        assertEquals(1, inRange.size());
+        assertTrue(inRange.contains(near));
+        environment.setCellSize(1);
+        assertEquals(2, environment.getEntitiesInRange(new Point(0, 0), 50).size());
+    }
+
+    @Test
+    public void testGetSignalingEntities() {
+        environment.addEntity(entity);
+        assertTrue(environment.getSignalingEntities("LABEL").isEmpty());
+        entity.setLabel("LABEL");
+        assertTrue(environment.getSignalingEntities("LABEL").contains(entity));
+        entity.unsignal();
+        assertTrue(environment.getSignalingEntities("LABEL").isEmpty());
+        entity.setLabel("LABEL");
+        environment.removeEntity(entity);
+        assertTrue(environment.getSignalingEntities("LABEL").isEmpty());
+    }
+
+    @Test
+    public void testSignalById() {
+        int label = environment.getLabels().intern("LABEL");
+        assertEquals(label, environment.getLabels().intern("LABEL"));
+        assertEquals("LABEL", environment.getLabels().name(label));
+        assertEquals(-1, new RobotEnvironment().getLabels().find("LABEL"));
+        environment.addEntity(entity);
+        entity.setLabel(label);
+        assertEquals(label, entity.signalId());
+        assertEquals("LABEL", entity.signal());
+        assertTrue(environment.getSignalingEntities(label).contains(entity));
+        assertTrue(environment.getSignalingEntities("LABEL").contains(entity));
+        entity.setLabel(LabelTable.NO_LABEL);
+        assertTrue(environment.getSignalingEntities(label).isEmpty());
+        assertTrue(environment.getSignalingEntities("UNKNOWN LABEL").isEmpty());
+    }
+
+    @Test
+    public void testRemoveEntityKeepsSwarmState() {
+        Robot first = new Robot(new Point(0, 0));
+        Robot last = new Robot(new Point(1, 1));
+        environment.addEntity(first);
+        environment.addEntity(last);
+        last.setLabel("LABEL");
+        environment.removeEntity(first);
+        assertEquals(1, environment.getState().size());
+        assertEquals(new Point(1, 1), last.getPosition());
+        assertEquals("LABEL", last.signal());
+        assertTrue(environment.getEntitiesInRange(new Point(0, 0), 2).contains(last));
+        assertEquals(new Point(0, 0), first.getPosition());
+        assertThrows(IllegalArgumentException.class, () -> new RobotEnvironment().addEntity(last));
+    }
+
+    @Test
+    public void testSignalCentroidMatchesScan() {
+        environment.setCellSize(1);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 200; i++) {
+            Robot robot = new Robot(new Point(random.nextDouble(20), random.nextDouble(20)));
+            robot.setLabel(i % 3 == 0 ? "LABEL" : "OTHER");
+            environment.addEntity(robot);
+        }
+        for (Entity robot : environment.getEntities()) {
+            robot.setDirectionTowards(random.nextDouble(20), random.nextDouble(20));
+            robot.setSpeed(random.nextDouble(2));
+            robot.move();
+            if (random.nextInt(4) == 0)
+                robot.setLabel(robot.signal().equals("LABEL") ? "OTHER" : "LABEL");
+        }
+        int label = environment.getLabels().find("LABEL");
+        for (Entity robot : environment.getEntities()) {
+            Centroid expected = new Centroid();
+            for (Entity other : environment.getSignalingEntities(label))
+                if (other != robot && other.isWithin(robot, 3.5))
+                    expected.add(other.getX(), other.getY());
+            Centroid centroid = robot.getSignalCentroid(label, 3.5);
+            assertEquals(expected.getCount(), centroid.getCount());
+            if (expected.getCount() > 0) {
+                assertEquals(expected.getX(), centroid.getX(), 1e-9);
+                assertEquals(expected.getY(), centroid.getY(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRectangleQueriesMatchScan() {
+        environment.setCellSize(1);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 500; i++)
+            environment.addEntity(new Robot(new Point(random.nextDouble(-20, 20), random.nextDouble(-20, 20))));
+        for (Entity robot : environment.getEntities()) {
+            robot.setDirectionTowards(random.nextDouble(-20, 20), random.nextDouble(-20, 20));
+            robot.setSpeed(random.nextDouble(2));
+            robot.move();
+        }
+        double[][] rectangles = {{-5.5, -3.2, 7.1, 4.8}, {0, 0, 3, 3}, {-100, -100, 100, 100}, {50, 50, 60, 60}};
+        for (double[] r : rectangles) {
+            Centroid expected = new Centroid();
+            for (Entity robot : environment.getEntities())
+                if (robot.getX() >= r[0] && robot.getX() <= r[2] && robot.getY() >= r[1] && robot.getY() <= r[3])
+                    expected.add(robot.getX(), robot.getY());
+            Centroid positions = new Centroid();
+            int[] calls = new int[1];
+            environment.getPositionsInRectangle(r[0], r[1], r[2], r[3], (count, x, y) -> {
+                assertEquals(1, count);
+                positions.add(x, y);
+                calls[0]++;
+            });
+            Centroid density = new Centroid();
+            environment.getDensityInRectangle(r[0], r[1], r[2], r[3], density);
+            assertEquals(expected.getCount(), positions.getCount());
+            assertEquals(expected.getCount(), calls[0]);
+            assertEquals(expected.getCount(), density.getCount());
+            if (expected.getCount() > 0) {
+                assertEquals(expected.getX(), positions.getX(), 1e-9);
+                assertEquals(expected.getY(), density.getY(), 1e-9);
+            }
+        }
+        environment.getPositionsInRectangle(5, 5, -5, -5, (count, x, y) -> fail("An empty rectangle contains no position."));
+    }
+
+    @Test
+    public void testIsInsideAShape() {
+        for (int i = 0; i < 100; i++)
+            environment.addShape(new ShapeData("ZONE", "CIRCLE", new double[]{10 * i, 0, 1}));
+        ShapeData large = new ShapeData("ZONE", "RECTANGLE", new double[]{-500, 100, 1000, 1000});
+        environment.addShape(large);
+        environment.addShape(shape);
+        assertTrue(environment.isInsideAShape("ZONE", 500.5, 0));
+        assertFalse(environment.isInsideAShape("ZONE", 505, 0));
+        assertTrue(environment.isInsideAShape("ZONE", 0, 600));
+        assertTrue(environment.isInsideAShape("label", 1, 1));
+        assertFalse(environment.isInsideAShape("label", 500.5, 0));
+        assertEquals(101, environment.getShapes("ZONE").size());
+        environment.removeShape(large);
+        assertFalse(environment.isInsideAShape("ZONE", 0, 600));
+        assertEquals(100, environment.getShapes("ZONE").size());
+    }
+
     @Test
     public void testClear() {
         environment.addEntity(entity);
@@ -80,4 +234,32 @@ public class RobotEnvironmentTest {
         assertEquals(0, environment.getEntityCount());
         assertEquals(0, environment.getShapeCount());
     }
+
+    @Test
+    public void testLoadRobots() throws IOException {
+        Path file = Files.createTempFile("robots", ".txt");
+        try {
+            StringBuilder content = new StringBuilder("\n   1.5\t  -2e1  ignored\r\n\n");
+            for (int i = 0; i < 100; i++)
+                content.append(i).append("  ").append(i * 0.25).append('\n');
+            content.append("0.1 1E-3");
+            Files.writeString(file, content);
+            LoadSummary summary = new RobotLoader(16).load(file, environment);
+            assertEquals(102, summary.lines());
+            List<Entity> entities = environment.getEntities();
+            assertEquals(102, entities.size());
+            assertEquals(1.5, entities.get(0).getPosition().getX());
+            assertEquals(-20, entities.get(0).getPosition().getY());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, entities.get(i + 1).getPosition().getX());
+                assertEquals(i * 0.25, entities.get(i + 1).getPosition().getY());
+            }
+            assertEquals(0.1, entities.get(101).getPosition().getX());
+            assertEquals(0.001, entities.get(101).getPosition().getY());
+            Files.writeString(file, "1 2\n3\n");
+            assertThrows(IllegalArgumentException.class, () -> new RobotLoader().load(file, new RobotEnvironment()));
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
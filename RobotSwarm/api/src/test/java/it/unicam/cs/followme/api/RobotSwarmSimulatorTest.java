@@ -1,14 +1,22 @@
 package it.unicam.cs.followme.api;
 
 import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.RunSummary;
 import it.unicam.cs.followme.command.*;
 import it.unicam.cs.followme.models.*;
 import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.util.SplitMix64;
+import it.unicam.cs.followme.utilities.ShapeData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 public class RobotSwarmSimulatorTest {
 
@@ -47,10 +55,10 @@ public class RobotSwarmSimulatorTest {
         Queue<Command> program = new LinkedList<>() {
         };
         program.add(new MoveCommand(new Point() , 2));
-        program.add(new FollowCommand("LABEL" , 5 ,2));
+        program.add(new FollowCommand("LABEL" , 5 ,2, this.environment.getLabels()));
 
         RepeatCommand repeatCommand = new RepeatCommand(2);
-        repeatCommand.addCommand(new SignalCommand("NEWLABEL"));
+        repeatCommand.addCommand(new SignalCommand("NEWLABEL", this.environment.getLabels()));
         program.add(repeatCommand);
 
         for (Entity entity: entities) {
@@ -71,5 +79,172 @@ public class RobotSwarmSimulatorTest {
         assertEquals("", this.entities.get(0).signal());
     }
 
+    @Test
+    public void testStep() {
+        this.setProgram();
+        assertEquals(2, simulator.step(1, 6, 2).ticks());
+        assertFalse(simulator.hasDone());
+        assertEquals(4, simulator.runUntilDone(1, 6).ticks());
+        assertTrue(simulator.hasDone());
+        assertEquals(0, simulator.step(1, 6, 1).ticks());
+        assertThrows(IllegalArgumentException.class, () -> simulator.step(0, 6, 1));
+    }
+
+    @Test
+    public void testRunForWithoutBudget() {
+        this.setProgram();
+        assertEquals(6, simulator.runFor(1, 6, Duration.ofSeconds(Long.MAX_VALUE)).ticks());
+        assertTrue(simulator.hasDone());
+        assertEquals(0, simulator.runFor(1, 6, Duration.ZERO).ticks());
+        assertThrows(IllegalArgumentException.class, () -> simulator.runFor(1, 6, Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    public void testRunAsync() throws Exception {
+        this.setProgram();
+        RunSummary summary = simulator.runAsync(1, 6).get();
+        assertEquals(6, summary.ticks());
+        assertTrue(simulator.hasDone());
+        assertEquals("NEWLABEL", this.entities.get(0).signal());
+    }
+
+    @Test
+    public void testParallelSimulateIsOrderIndependent() {
+        List<Point> forward = this.simulateSwarm(1, false);
+        List<Point> reversed = this.simulateSwarm(4, true);
+        assertEquals(forward, reversed);
+        assertNotEquals(new Point(0, 0), forward.get(0));
+    }
+
+    @Test
+    public void testFailingStepClosesTheTick() {
+        RobotEnvironment swarm = new RobotEnvironment();
+        Robot broken = new Robot(new Point(0, 0)) {
+            @Override
+            public void executeNextInstruction() {
+                throw new IllegalStateException("Broken robot.");
+            }
+        };
+        swarm.addEntity(new Robot(new Point(1, 1)));
+        swarm.addEntity(broken);
+        RobotSwarmSimulator parallel = new RobotSwarmSimulator(swarm, 2);
+        assertThrows(IllegalStateException.class, () -> parallel.simulate(1, 5));
+        assertFalse(swarm.getState().isTicking());
+        assertFalse(parallel.hasDone());
+        swarm.removeEntity(broken);
+        swarm.addEntity(new Robot(new Point(2, 2)));
+        assertEquals(2, swarm.getEntityCount());
+        assertEquals(1, parallel.step(1, 5, 1).ticks());
+        parallel.close();
+        assertThrows(RejectedExecutionException.class, () -> parallel.step(1, 5, 1));
+        assertFalse(swarm.getState().isTicking());
+    }
+
+    @Test
+    public void testSeededRunsAreReproducible() {
+        assertEquals(this.simulateRandomSwarm(1, 42), this.simulateRandomSwarm(4, 42));
+        assertNotEquals(this.simulateRandomSwarm(1, 42), this.simulateRandomSwarm(1, 7));
+        SplitMix64 random = new SplitMix64(42);
+        assertEquals(new Robot(random.split()).getPosition(), new Robot(new SplitMix64(42).split()).getPosition());
+        SplitMix64 resumed = new SplitMix64(random.getSeed(), random.getGamma());
+        assertEquals(random.nextLong(), resumed.nextLong());
+        assertEquals(new SplittableRandom(42).nextDouble(), new SplitMix64(42).nextDouble());
+    }
 
+    @Test
+    public void testCheckpointRestoresTheRun() throws IOException {
+        RobotEnvironment swarm = new RobotEnvironment();
+        RepeatCommand repeat = new RepeatCommand(50);
+        repeat.addCommand(new RandomMoveCommand(new Point(-10, -10), new Point(10, 10), 1));
+        repeat.addCommand(new SignalCommand("CHECKPOINT", swarm.getLabels()));
+        repeat.addCommand(new FollowCommand("CHECKPOINT", 5, 1, swarm.getLabels()));
+        Program program = Program.compile(List.of(repeat));
+        RobotEnvironment reference = new RobotEnvironment(swarm.getLabels());
+        for (RobotEnvironment environment : List.of(swarm, reference)) {
+            environment.addShape(new ShapeData("ZONE", "CIRCLE", new double[]{0, 0, 3}));
+            for (int i = 0; i < 32; i++) {
+                Robot robot = new Robot(new Point(i, -i));
+                if (i % 2 == 0)
+                    robot.addProgram(program);
+                else
+                    robot.addProgram(new LinkedList<>(List.of(repeat)));
+                environment.addEntity(robot);
+            }
+        }
+        RobotSwarmSimulator original = new RobotSwarmSimulator(swarm);
+        original.setSeed(42);
+        original.step(1, 100, 7);
+        RobotSwarmSimulator uncheckpointed = new RobotSwarmSimulator(reference);
+        uncheckpointed.setSeed(42);
+        uncheckpointed.runUntilDone(1, 100);
+        Path file = Files.createTempFile("swarm", ".checkpoint");
+        try {
+            original.checkpoint(file);
+            RobotSwarmSimulator restored = RobotSwarmSimulator.restore(file, program);
+            original.runUntilDone(1, 100);
+            restored.runUntilDone(1, 100);
+            assertTrue(restored.hasDone());
+            List<Entity> copies = restored.getEnvironment().getEntities();
+            assertEquals(swarm.getEntities().size(), copies.size());
+            assertEquals(1, restored.getEnvironment().getShapes().size());
+            for (int i = 0; i < copies.size(); i++) {
+                assertEquals(swarm.getEntities().get(i).getPosition(), copies.get(i).getPosition());
+                assertEquals(swarm.getEntities().get(i).signal(), copies.get(i).signal());
+                assertEquals(reference.getEntities().get(i).getPosition(), copies.get(i).getPosition());
+            }
+            assertThrows(IllegalArgumentException.class, () -> RobotSwarmSimulator.restore(file, Program.empty()));
+            RepeatCommand other = new RepeatCommand(49);
+            other.addCommand(new RandomMoveCommand(new Point(-10, -10), new Point(10, 10), 1));
+            other.addCommand(new SignalCommand("CHECKPOINT", swarm.getLabels()));
+            other.addCommand(new FollowCommand("CHECKPOINT", 5, 1, swarm.getLabels()));
+            Program another = Program.compile(List.of(other));
+            assertEquals(program.length(), another.length());
+            assertThrows(IllegalArgumentException.class, () -> RobotSwarmSimulator.restore(file, another));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private List<Point> simulateRandomSwarm(int parallelism, long seed) {
+        Environment swarm = new RobotEnvironment();
+        for (int i = 0; i < 8; i++) {
+            Queue<Command> program = new LinkedList<>();
+            program.add(new RandomMoveCommand(new Point(-10, -10), new Point(10, 10), 1));
+            program.add(new FollowCommand("NOBODY", 5, 1, swarm.getLabels()));
+            Robot robot = new Robot(new Point(i, 0));
+            robot.addProgram(program);
+            swarm.addEntity(robot);
+        }
+        try (RobotSwarmSimulator seeded = new RobotSwarmSimulator(swarm, parallelism)) {
+            seeded.setSeed(seed);
+            seeded.runUntilDone(1, 2);
+        }
+        List<Point> positions = new ArrayList<>();
+        swarm.getEntities().forEach(robot -> positions.add(robot.getPosition()));
+        return positions;
+    }
+
+    private List<Point> simulateSwarm(int parallelism, boolean reversed) {
+        List<Robot> robots = new ArrayList<>();
+        for (Point position : List.of(new Point(0, 0), new Point(4, 0), new Point(0, 4), new Point(4, 4)))
+            robots.add(new Robot(position));
+        Queue<Command> program = new LinkedList<>();
+        Environment swarm = new RobotEnvironment();
+        program.add(new SignalCommand("LABEL", swarm.getLabels()));
+        program.add(new FollowCommand("LABEL", 10, 1, swarm.getLabels()));
+        List<Robot> order = new ArrayList<>(robots);
+        if (reversed)
+            Collections.reverse(order);
+        for (Robot robot : order) {
+            robot.addProgram(program);
+            swarm.addEntity(robot);
+        }
+        try (RobotSwarmSimulator parallel = new RobotSwarmSimulator(swarm, parallelism)) {
+            while (!parallel.hasDone())
+                parallel.simulate(1, 2);
+        }
+        List<Point> positions = new ArrayList<>();
+        robots.forEach(robot -> positions.add(robot.getPosition()));
+        return positions;
+    }
 }
@@ -3,12 +3,16 @@ package it.unicam.cs.followme.api;
 import it.unicam.cs.followme.command.Command;
 import it.unicam.cs.followme.command.MoveCommand;
 import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
 import it.unicam.cs.followme.util.Direction;
+import it.unicam.cs.followme.util.DirectionCalculator;
 import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.utilities.ShapeData;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Random;
 
 public class RobotTest {
 
@@ -27,6 +31,50 @@ public class RobotTest {
         assertEquals(direction, robot.getDirection());
     }
 
+    @Test
+    public void testSetDirectionTowards() {
+        Robot robot = new Robot(new Point(1, 1));
+        robot.setDirectionTowards(4, 5);
+        assertEquals(0.6, robot.getDirection().getDeltaX(), 1e-12);
+        assertEquals(0.8, robot.getDirection().getDeltaY(), 1e-12);
+        robot.setDirectionTowards(1, 1);
+        assertEquals(new Direction(0, 0), robot.getDirection());
+        assertEquals(new Direction(0, 0), DirectionCalculator.calculateDirection(new Point(2, 2), new Point(2, 2)));
+        double[] deltaX = new double[2];
+        double[] deltaY = new double[2];
+        DirectionCalculator.calculateDirections(new double[]{0, 1}, new double[]{0, 1}, new double[]{0, 1},
+                new double[]{-3, 1}, deltaX, deltaY, 2);
+        assertArrayEquals(new double[]{0, 0}, deltaX);
+        assertArrayEquals(new double[]{-1, 0}, deltaY);
+    }
+
+    @Test
+    public void testDirectionPathsAgree() {
+        Random random = new Random(42);
+        int count = 1000;
+        double[] currentX = new double[count];
+        double[] currentY = new double[count];
+        double[] targetX = new double[count];
+        double[] targetY = new double[count];
+        for (int i = 0; i < count; i++) {
+            currentX[i] = random.nextDouble() * 100;
+            currentY[i] = random.nextDouble() * 100;
+            targetX[i] = currentX[i] + random.nextGaussian() * Math.pow(10, random.nextInt(12) - 6);
+            targetY[i] = i % 3 == 0 ? currentY[i] : random.nextDouble() * 100;
+        }
+        double[] deltaX = new double[count];
+        double[] deltaY = new double[count];
+        DirectionCalculator.calculateDirections(currentX, currentY, targetX, targetY, deltaX, deltaY, count);
+        for (int i = 0; i < count; i++) {
+            Direction scalar = DirectionCalculator.calculateDirection(new Point(currentX[i], currentY[i]), new Point(targetX[i], targetY[i]));
+            Robot robot = new Robot(new Point(currentX[i], currentY[i]));
+            robot.setDirectionTowards(targetX[i], targetY[i]);
+            assertEquals(scalar.getDeltaX(), deltaX[i]);
+            assertEquals(scalar.getDeltaY(), deltaY[i]);
+            assertEquals(scalar, robot.getDirection());
+        }
+    }
+
     @Test
     public void testMove() {
         Robot robot = new Robot(new Point(1.0, 2.0));
@@ -37,6 +85,21 @@ public class RobotTest {
         assertTrue(newPosition.equals(robot.getPosition()));
     }
 
+    @Test
+    public void testGetNeighbors() {
+        RobotEnvironment environment = new RobotEnvironment(5);
+        Robot robot = new Robot(new Point(0, 0));
+        Robot other = new Robot(new Point(20, 0));
+        environment.addEntity(robot);
+        environment.addEntity(other);
+        assertTrue(robot.getNeighbors(5).isEmpty());
+        other.setDirection(new Direction(-1, 0));
+        other.setSpeed(16);
+        other.move();
+        assertEquals(1, robot.getNeighbors(5).size());
+        assertTrue(robot.getNeighbors(5).contains(other));
+    }
+
     @Test
     public void testAddProgram() {
         Robot robot = new Robot();
@@ -44,7 +107,45 @@ public class RobotTest {
         program.add(new MoveCommand(new Point() , 1));
         robot.addProgram(program);
         robot.executeNextInstruction();
-        assertTrue(robot.commands.isEmpty());
+        assertFalse(robot.hasNextInstruction());
+    }
+
+    @Test
+    public void testIsWithin() {
+        Robot robot = new Robot(new Point(3, 4));
+        Robot other = new Robot(new Point(0, 0));
+        assertTrue(robot.isWithin(0, 0, 5));
+        assertFalse(robot.isWithin(0, 0, 4.9));
+        assertTrue(robot.isWithin(other, 5));
+        assertFalse(robot.isWithin(3, 4, -1));
+        assertEquals(25, new Point(3, 4).distanceSquared(new Point()));
+        int[] selected = new int[3];
+        assertEquals(2, Point.selectWithin(0, 0, 5, new double[]{3, 6, 0}, new double[]{4, 0, -5}, 3, selected));
+        assertArrayEquals(new int[]{0, 2}, new int[]{selected[0], selected[1]});
+    }
+
+    @Test
+    public void testIsInsideAShape() {
+        Robot robot = new Robot(new Point(3, 4));
+        assertTrue(robot.isInsideAShape(new ShapeData("label", "CIRCLE", new double[]{0, 0, 5})));
+        assertFalse(robot.isInsideAShape(new ShapeData("label", "CIRCLE", new double[]{0, 0, 4.9})));
+        assertFalse(robot.isInsideAShape(new ShapeData("label", "CIRCLE", new double[]{3, 4, -1})));
+        assertTrue(robot.isInsideAShape(new ShapeData("label", "RECTANGLE", new double[]{1, 2, 2, 2})));
+        assertFalse(robot.isInsideAShape(new ShapeData("label", "RECTANGLE", new double[]{1, 2, 2, 1.5})));
+        assertThrows(IllegalArgumentException.class, () -> new ShapeData("label", "TRIANGLE", new double[]{0, 0, 1}));
+    }
+
+    @Test
+    public void testShapeGeometryFollowsItsArguments() {
+        double[] args = {0, 0, 5};
+        ShapeData shape = new ShapeData("label", "CIRCLE", args);
+        args[2] = 1;
+        shape.args()[2] = 1;
+        assertTrue(new Robot(new Point(3, 4)).isInsideAShape(shape));
+        assertEquals(5, shape.args()[2]);
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShapeData("label", "CIRCLE", new double[]{0, 0, 1}, shape.geometry()));
+        assertEquals(shape.geometry(), new ShapeData("label", "CIRCLE", new double[]{0, 0, 5}, shape.geometry()).geometry());
     }
 
 }
@@ -0,0 +1,140 @@
+package it.unicam.cs.followme.api;
+
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.command.*;
+import it.unicam.cs.followme.models.*;
+import it.unicam.cs.followme.trace.AsyncFileTraceSink;
+import it.unicam.cs.followme.trace.RingBufferTraceSink;
+import it.unicam.cs.followme.trace.TraceRecord;
+import it.unicam.cs.followme.trace.TrajectoryReader;
+import it.unicam.cs.followme.trace.TrajectoryRecorder;
+import it.unicam.cs.followme.util.Direction;
+import it.unicam.cs.followme.util.Point;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+public class TraceSinkTest {
+
+    @Test
+    public void testRingBufferTraceSink() {
+        RobotSwarmSimulator simulator = this.simulator();
+        RingBufferTraceSink sink = new RingBufferTraceSink(3);
+        simulator.setTraceSink(sink);
+        simulator.runUntilDone(1, 2);
+        assertEquals(4, sink.getWritten());
+        List<TraceRecord> records = sink.getRecords();
+        assertEquals(3, records.size());
+        assertEquals(new TraceRecord(1, 1, 1, Program.ACTION), records.get(2));
+    }
+
+    @Test
+    public void testAsyncFileTraceSink() throws Exception {
+        Path file = Files.createTempFile("trace", ".bin");
+        try {
+            RobotSwarmSimulator simulator = this.simulator();
+            try (AsyncFileTraceSink sink = new AsyncFileTraceSink(file, 3)) {
+                simulator.setTraceSink(sink);
+                simulator.runUntilDone(1, 2);
+            }
+            ByteBuffer trace = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals(4 * AsyncFileTraceSink.RECORD_SIZE, trace.remaining());
+            assertEquals(0, trace.getLong());
+            assertEquals(0, trace.getInt());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParallelTracing() throws Exception {
+        int robots = 3000;
+        RingBufferTraceSink ring = new RingBufferTraceSink(2 * robots);
+        try (RobotSwarmSimulator simulator = this.simulator(robots, 3)) {
+            simulator.setTraceSink(ring);
+            simulator.runUntilDone(1, 2);
+        }
+        assertEquals(2L * robots, ring.getWritten());
+        List<TraceRecord> records = ring.getRecords();
+        for (int tick = 0; tick < 2; tick++) {
+            Set<Integer> traced = new HashSet<>();
+            for (TraceRecord record : records.subList(tick * robots, (tick + 1) * robots)) {
+                assertEquals(tick, record.tick());
+                traced.add(record.robot());
+            }
+            assertEquals(robots, traced.size());
+        }
+        Path file = Files.createTempFile("trace", ".bin");
+        try {
+            try (RobotSwarmSimulator simulator = this.simulator(robots, 3);
+                 AsyncFileTraceSink sink = new AsyncFileTraceSink(file, 7)) {
+                simulator.setTraceSink(sink);
+                simulator.runUntilDone(1, 2);
+            }
+            assertEquals(2L * robots * AsyncFileTraceSink.RECORD_SIZE, Files.size(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTrajectoryRecorder() throws Exception {
+        for (boolean compressed : new boolean[]{false, true}) {
+            Path file = Files.createTempFile("trajectory", ".bin");
+            try {
+                RobotSwarmSimulator simulator = this.simulator();
+                List<Entity> entities = simulator.getEnvironment().getEntities();
+                entities.get(0).setSpeed(0.5);
+                entities.get(0).setDirection(new Direction(1, 0));
+                Queue<Command> program = new LinkedList<>();
+                program.add(new SignalCommand("TRAJECTORY", simulator.getEnvironment().getLabels()));
+                program.add(new ContinueCommand(5));
+                entities.get(0).addProgram(program);
+                try (TrajectoryRecorder recorder = new TrajectoryRecorder(file, 1, compressed)) {
+                    simulator.setTickListener(recorder);
+                    simulator.runUntilDone(1, 4);
+                }
+                try (TrajectoryReader reader = new TrajectoryReader(file)) {
+                    for (int tick = 0; tick < 4; tick++) {
+                        assertTrue(reader.next());
+                        assertEquals(tick, reader.getTick());
+                        assertEquals(2, reader.size());
+                        assertEquals(tick * 0.5, reader.getX(0));
+                        assertEquals(0, reader.getY(0));
+                        assertEquals(1, reader.getX(1));
+                        assertEquals("TRAJECTORY", reader.getLabel(0));
+                        assertEquals("LABEL", reader.getLabel(1));
+                    }
+                    assertFalse(reader.next());
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private RobotSwarmSimulator simulator() {
+        return this.simulator(2, 1);
+    }
+
+    private RobotSwarmSimulator simulator(int robots, int parallelism) {
+        Environment environment = new RobotEnvironment();
+        Queue<Command> program = new LinkedList<>();
+        program.add(new SignalCommand("LABEL", environment.getLabels()));
+        program.add(new StopCommand());
+        for (int i = 0; i < robots; i++) {
+            Robot robot = new Robot(new Point(i, i));
+            robot.addProgram(program);
+            environment.addEntity(robot);
+        }
+        return parallelism > 1 ? new RobotSwarmSimulator(environment, parallelism) : new RobotSwarmSimulator(environment);
+    }
+}
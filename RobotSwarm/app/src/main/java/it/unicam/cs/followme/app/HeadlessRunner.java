@@ -0,0 +1,196 @@
+package it.unicam.cs.followme.app;
+
+import it.unicam.cs.followme.Controller;
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.RunSummary;
+import it.unicam.cs.followme.io.LoadSummary;
+import it.unicam.cs.followme.utilities.FollowMeParserException;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command-line entry point running a simulation to completion without a display.
+ * It references no JavaFX class, so no JavaFX class is loaded, and prints a throughput report
+ * when the run is done.
+ * <p>
+ * Usage: {@code --robots <file> --shapes <file> --program <file> --dt <step> --time <total>
+ * [--seed <seed>] [--threads <count>]}. With more than one thread the swarm is stepped in parallel.
+ * The peak heap it reports is the largest heap in use while the simulation runs, loading excluded.
+ */
+public class HeadlessRunner {
+
+    private static final String USAGE = "Usage: --robots <file> --shapes <file> --program <file> --dt <step> --time <total>"
+            + " [--seed <seed>] [--threads <count>]";
+
+    public static void main(String[] args) {
+        Map<String, String> options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            run(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException | FollowMeParserException e) {
+            System.err.println("The simulation could not be loaded: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads the robots, shapes and program, runs the simulation to completion and prints its report.
+     *
+     * @param options The values of the command-line options, by name.
+     * @throws IOException              If a file cannot be read.
+     * @throws FollowMeParserException  If the shapes or the program cannot be parsed.
+     * @throws IllegalArgumentException If an option is missing or invalid.
+     */
+    private static void run(Map<String, String> options) throws IOException, FollowMeParserException {
+        double dt = parseDouble(options, "dt");
+        double time = parseDouble(options, "time");
+        long threads = options.containsKey("threads") ? parseLong(options, "threads") : 1;
+        if (threads <= 0 || threads > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        Controller controller = new Controller();
+        LoadSummary load = controller.parseEntityFromFile(require(options, "robots"));
+        controller.parseShapeFromFile(require(options, "shapes"));
+        controller.parseProgramFromFile(require(options, "program"));
+        int robots = controller.getEntities().size();
+        RunSummary run;
+        long peakHeap;
+        try (RobotSwarmSimulator simulator = threads > 1
+                ? new RobotSwarmSimulator(controller.getEnvironment(), (int) threads)
+                : new RobotSwarmSimulator(controller.getEnvironment())) {
+            if (options.containsKey("seed"))
+                simulator.setSeed(parseLong(options, "seed"));
+            try (HeapPeak heap = new HeapPeak()) {
+                run = simulator.runUntilDone(dt, time);
+                peakHeap = heap.getBytes();
+            }
+        }
+        double seconds = run.elapsed().toNanos() / 1e9;
+        System.out.printf("robots:          %d (loaded at %.0f lines/s)%n", robots, load.linesPerSecond());
+        System.out.printf("shapes:          %d%n", controller.getShapes().size());
+        System.out.printf("threads:         %d%n", threads);
+        System.out.printf("ticks:           %d in %.3f s%n", run.ticks(), seconds);
+        System.out.printf("ticks/s:         %.1f%n", run.ticksPerSecond());
+        System.out.printf("robot-steps/s:   %.0f%n", run.ticksPerSecond() * robots);
+        System.out.printf("peak heap:       %.1f MB%n", peakHeap / (1024.0 * 1024.0));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length)
+                throw new IllegalArgumentException("Invalid option " + args[i] + ".");
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String require(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing option --" + name + ".");
+        return value;
+    }
+
+    private static double parseDouble(Map<String, String> options, String name) {
+        try {
+            return Double.parseDouble(require(options, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of --" + name + ".");
+        }
+    }
+
+    private static long parseLong(Map<String, String> options, String name) {
+        try {
+            return Long.parseLong(require(options, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of --" + name + ".");
+        }
+    }
+
+    /**
+     * Peak of the heap in use from its creation on. Between two garbage collections the used heap
+     * only grows, so its peak is either the heap used when a collection starts, reported by the
+     * notifications of the collectors as the sum of the heap pools before the collection, or the
+     * heap used when the peak is read.
+     */
+    private static final class HeapPeak implements NotificationListener, AutoCloseable {
+
+        private final Set<String> heapPools;
+
+        private final AtomicLong peak;
+
+        private HeapPeak() {
+            this.heapPools = new HashSet<>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                if (pool.getType() == MemoryType.HEAP)
+                    this.heapPools.add(pool.getName());
+            this.peak = new AtomicLong(used());
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+                if (collector instanceof NotificationEmitter emitter)
+                    emitter.addNotificationListener(this, null, null);
+        }
+
+        /**
+         * Gets the largest number of heap bytes in use since the peak was created.
+         */
+        private long getBytes() {
+            return this.peak.accumulateAndGet(used(), Math::max);
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+                return;
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long before = 0;
+            for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageBeforeGc().entrySet())
+                if (this.heapPools.contains(pool.getKey()))
+                    before += pool.getValue().getUsed();
+            this.peak.accumulateAndGet(before, Math::max);
+        }
+
+        @Override
+        public void close() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                try {
+                    if (collector instanceof NotificationEmitter emitter)
+                        emitter.removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // the collector was not listened to
+                }
+            }
+        }
+
+        private static long used() {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package it.unicam.cs.followme.app;
+
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.models.SwarmState;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs a simulation continuously on its own thread, publishing a snapshot of the robots visible in
+ * the current viewport after every tick through a {@link TripleBuffer}, so that a renderer can draw
+ * the latest snapshot at its own pace without ever waiting for a tick.
+ * The loop can be throttled to a number of ticks per rendered frame: every call to {@link #frame()}
+ * allows that many ticks, without letting unused ticks pile up. Without throttling the simulation
+ * runs as fast as it can, independently of the rendering.
+ * The loop never holds its lock while stepping, so pausing and capturing are requests that the loop
+ * serves between two ticks and only {@link #pauseAndWait()} waits for the tick in progress.
+ */
+public class SimulationLoop implements AutoCloseable {
+
+    private final RobotSwarmSimulator simulator;
+
+    private final TripleBuffer<SwarmSnapshot> snapshots;
+
+    private final Semaphore permits;
+
+    private final Object lock;
+
+    private final Thread thread;
+
+    private volatile double dt;
+
+    private volatile double time;
+
+    private volatile int ticksPerFrame;
+
+    private volatile boolean playing;
+
+    private volatile boolean closed;
+
+    private volatile boolean stepping;
+
+    private volatile boolean captureRequested;
+
+    private volatile RuntimeException failure;
+
+    private volatile Viewport viewport;
+
+    private long tick = -1;
+
+    /**
+     * Constructs a paused loop over a simulator, installing itself as the tick listener of the simulator.
+     *
+     * @param simulator The simulator stepped by the loop.
+     * @param viewport  The visible part of the world.
+     */
+    public SimulationLoop(RobotSwarmSimulator simulator, Viewport viewport) {
+        this.simulator = simulator;
+        this.viewport = viewport;
+        this.snapshots = new TripleBuffer<>(SwarmSnapshot::new);
+        this.permits = new Semaphore(0);
+        this.lock = new Object();
+        this.simulator.setTickListener(this::publish);
+        this.thread = new Thread(this::run, "simulation-loop");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Gets the simulator stepped by the loop.
+     *
+     * @return The simulator of the loop.
+     */
+    public RobotSwarmSimulator getSimulator() {
+        return this.simulator;
+    }
+
+    /**
+     * Starts or resumes stepping the simulation until it is done or paused.
+     *
+     * @param dt   The time step for each simulation step.
+     * @param time The total simulation time.
+     * @throws IllegalArgumentException If the time step or total time is invalid.
+     */
+    public void play(double dt, double time) {
+        if (dt <= 0 || time < 0)
+            throw new IllegalArgumentException("The time entered for the simulation is invalid.");
+        synchronized (this.lock) {
+            this.dt = dt;
+            this.time = time;
+            this.failure = null;
+            this.permits.drainPermits();
+            this.playing = true;
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Asks the loop to pause, without waiting for the tick in progress to finish.
+     */
+    public void pause() {
+        this.playing = false;
+        this.permits.release();
+    }
+
+    /**
+     * Pauses the simulation, waiting for the tick or capture in progress to finish so that the environment can be
+     * changed by the caller. A capture that the loop did not start yet is cancelled.
+     */
+    public void pauseAndWait() {
+        this.pause();
+        this.captureRequested = false;
+        boolean interrupted = false;
+        synchronized (this.lock) {
+            while (this.stepping) {
+                try {
+                    this.lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Checks whether the simulation is being stepped.
+     *
+     * @return true if the loop is playing, false if it is paused or the simulation is done.
+     */
+    public boolean isPlaying() {
+        return this.playing;
+    }
+
+    /**
+     * Sets the number of ticks allowed for every rendered frame.
+     *
+     * @param ticksPerFrame The number of ticks per frame, 0 or less to let the simulation run freely.
+     */
+    public void setTicksPerFrame(int ticksPerFrame) {
+        this.ticksPerFrame = Math.max(0, ticksPerFrame);
+        this.permits.release();
+    }
+
+    /**
+     * Notifies the loop that a frame is rendered, allowing the ticks of the next frame when the loop is throttled.
+     */
+    public void frame() {
+        int allowed = this.ticksPerFrame;
+        if (allowed > 0 && this.playing) {
+            int missing = allowed - this.permits.availablePermits();
+            if (missing > 0)
+                this.permits.release(missing);
+        }
+    }
+
+    /**
+     * Sets the visible part of the world, used from the next snapshot on.
+     *
+     * @param viewport The visible part of the world.
+     */
+    public void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+    }
+
+    /**
+     * Asks the loop to publish a snapshot of the robots in the current viewport once the tick in progress, if any, is finished.
+     * Used to follow changes of the viewport while the simulation is paused.
+     */
+    public void capture() {
+        this.captureRequested = true;
+        synchronized (this.lock) {
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Gets the latest published snapshot, which stays valid until the next call.
+     * Only the rendering thread may call this method.
+     *
+     * @return The latest snapshot of the swarm.
+     */
+    public SwarmSnapshot latest() {
+        return this.snapshots.front();
+    }
+
+    /**
+     * Checks whether a snapshot was published since the rendering thread last took one.
+     *
+     * @return true if a newer snapshot is available, false otherwise.
+     */
+    public boolean hasFreshSnapshot() {
+        return this.snapshots.hasFresh();
+    }
+
+    /**
+     * Gets the failure that stopped the simulation, if any.
+     *
+     * @return The exception thrown by the last tick, null if the simulation did not fail.
+     */
+    public RuntimeException getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Stops the thread of the loop and removes the loop from the tick listeners of the simulator.
+     */
+    @Override
+    public void close() {
+        synchronized (this.lock) {
+            this.closed = true;
+            this.playing = false;
+            this.permits.release();
+            this.lock.notifyAll();
+        }
+        this.simulator.setTickListener(null);
+    }
+
+    private void publish(long tick, SwarmState state) {
+        this.tick = tick;
+        this.snapshots.back().capture(tick, this.simulator.getEnvironment(), this.viewport);
+        this.snapshots.publish();
+    }
+
+    private void run() {
+        try {
+            while (!this.closed) {
+                synchronized (this.lock) {
+                    while (!this.playing && !this.captureRequested && !this.closed)
+                        this.lock.wait();
+                    this.stepping = true;
+                }
+                try {
+                    if (this.playing && this.ticksPerFrame > 0)
+                        this.permits.acquire();
+                    if (this.playing)
+                        this.step();
+                    if (this.captureRequested) {
+                        this.captureRequested = false;
+                        this.publish(this.tick, null);
+                    }
+                } finally {
+                    synchronized (this.lock) {
+                        this.stepping = false;
+                        this.lock.notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Steps the simulation by a tick, pausing the loop when the simulation is done or fails.
+     */
+    private void step() {
+        try {
+            if (this.simulator.step(this.dt, this.time, 1).ticks() == 0)
+                this.playing = false;
+        } catch (RuntimeException e) {
+            this.failure = e;
+            this.playing = false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package it.unicam.cs.followme.app;
+
+import it.unicam.cs.followme.utilities.Geometry;
+import it.unicam.cs.followme.utilities.ShapeData;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+import java.util.List;
+
+/**
+ * Renderer drawing the swarm onto two canvases stacked in a pane, instead of creating a node for
+ * every robot and shape. The shapes are drawn on a background canvas, redrawn only when the shapes
+ * or the viewport change; the robots are drawn on a foreground canvas from snapshots holding only
+ * the robots inside the viewport, from a sprite loaded once, as single points when there are too
+ * many robots for the sprites to be told apart, or as a density map when there are too many to be
+ * drawn one by one.
+ */
+public class SwarmRenderer {
+
+    /**
+     * Number of robots above which robots are drawn as points instead of sprites.
+     */
+    public static final int SPRITE_LIMIT = 5000;
+
+    private static final double SPRITE_SIZE = 30;
+
+    private static final double POINT_SIZE = 2;
+
+    private final Canvas shapesLayer;
+
+    private final Canvas robotsLayer;
+
+    private final Image sprite;
+
+    private List<ShapeData> drawnShapes;
+
+    private Viewport shapesViewport;
+
+    /**
+     * Constructs a renderer drawing into a pane, replacing its children with the canvases.
+     *
+     * @param area   The pane receiving the canvases.
+     * @param width  The width of the canvases.
+     * @param height The height of the canvases.
+     */
+    public SwarmRenderer(Pane area, double width, double height) {
+        this.shapesLayer = new Canvas(width, height);
+        this.robotsLayer = new Canvas(width, height);
+        this.sprite = new Image("/images/robot.png", SPRITE_SIZE, 0, true, true);
+        this.drawnShapes = List.of();
+        area.getChildren().setAll(this.shapesLayer, this.robotsLayer);
+    }
+
+    /**
+     * Draws the shapes lying in a viewport, unless they are the shapes already drawn in that viewport.
+     *
+     * @param shapes   The shapes of the environment.
+     * @param viewport The visible part of the world.
+     */
+    public void drawShapes(List<ShapeData> shapes, Viewport viewport) {
+        if (shapes.equals(this.drawnShapes) && viewport.equals(this.shapesViewport))
+            return;
+        this.drawnShapes = List.copyOf(shapes);
+        this.shapesViewport = viewport;
+        GraphicsContext graphics = this.shapesLayer.getGraphicsContext2D();
+        graphics.clearRect(0, 0, this.shapesLayer.getWidth(), this.shapesLayer.getHeight());
+        double scale = viewport.scale();
+        for (ShapeData shape : this.drawnShapes) {
+            if (shape.geometry() instanceof Geometry.Circle circle) {
+                if (circle.centerX() + circle.radius() < viewport.minX() || circle.centerX() - circle.radius() > viewport.maxX()
+                        || circle.centerY() + circle.radius() < viewport.minY() || circle.centerY() - circle.radius() > viewport.maxY())
+                    continue;
+                graphics.setFill(Color.BLUE);
+                graphics.fillOval(viewport.toScreenX(circle.centerX() - circle.radius()), viewport.toScreenY(circle.centerY() + circle.radius()),
+                        2 * circle.radius() * scale, 2 * circle.radius() * scale);
+            } else if (shape.geometry() instanceof Geometry.Rectangle rectangle) {
+                if (rectangle.maxX() < viewport.minX() || rectangle.minX() > viewport.maxX()
+                        || rectangle.maxY() < viewport.minY() || rectangle.minY() > viewport.maxY())
+                    continue;
+                graphics.setFill(Color.RED);
+                graphics.fillRect(viewport.toScreenX(rectangle.minX()), viewport.toScreenY(rectangle.maxY()),
+                        (rectangle.maxX() - rectangle.minX()) * scale, (rectangle.maxY() - rectangle.minY()) * scale);
+            }
+        }
+    }
+
+    /**
+     * Draws the robots of a snapshot in the viewport they were taken in, replacing the robots drawn before.
+     *
+     * @param snapshot The snapshot of the visible robots.
+     */
+    public void drawRobots(SwarmSnapshot snapshot) {
+        GraphicsContext graphics = this.robotsLayer.getGraphicsContext2D();
+        graphics.clearRect(0, 0, this.robotsLayer.getWidth(), this.robotsLayer.getHeight());
+        Viewport viewport = snapshot.getViewport();
+        if (viewport == null)
+            return;
+        if (snapshot.isAggregated()) {
+            this.drawDensity(graphics, snapshot, viewport);
+            return;
+        }
+        double[] x = snapshot.getX();
+        double[] y = snapshot.getY();
+        int count = snapshot.size();
+        if (count <= SPRITE_LIMIT) {
+            double halfWidth = this.sprite.getWidth() / 2;
+            double halfHeight = this.sprite.getHeight() / 2;
+            for (int i = 0; i < count; i++)
+                graphics.drawImage(this.sprite, viewport.toScreenX(x[i]) - halfWidth, viewport.toScreenY(y[i]) - halfHeight);
+        } else {
+            graphics.setFill(Color.BLACK);
+            for (int i = 0; i < count; i++)
+                graphics.fillRect(viewport.toScreenX(x[i]), viewport.toScreenY(y[i]), POINT_SIZE, POINT_SIZE);
+        }
+    }
+
+    /**
+     * Draws the bins of a density map, the opacity of a bin growing with the number of its robots.
+     */
+    private void drawDensity(GraphicsContext graphics, SwarmSnapshot snapshot, Viewport viewport) {
+        int[] bins = snapshot.getBins();
+        double binWidth = viewport.width() / SwarmSnapshot.BINS;
+        double binHeight = viewport.height() / SwarmSnapshot.BINS;
+        double logMax = Math.log1p(snapshot.getMaxBin());
+        for (int row = 0; row < SwarmSnapshot.BINS; row++) {
+            for (int column = 0; column < SwarmSnapshot.BINS; column++) {
+                int count = bins[row * SwarmSnapshot.BINS + column];
+                if (count == 0)
+                    continue;
+                graphics.setFill(Color.rgb(0, 0, 0, Math.log1p(count) / logMax));
+                graphics.fillRect(column * binWidth, row * binHeight, binWidth, binHeight);
+            }
+        }
+    }
+
+    /**
+     * Erases the shapes and the robots.
+     */
+    public void clear() {
+        this.drawnShapes = List.of();
+        this.shapesViewport = null;
+        this.shapesLayer.getGraphicsContext2D().clearRect(0, 0, this.shapesLayer.getWidth(), this.shapesLayer.getHeight());
+        this.robotsLayer.getGraphicsContext2D().clearRect(0, 0, this.robotsLayer.getWidth(), this.robotsLayer.getHeight());
+    }
+}
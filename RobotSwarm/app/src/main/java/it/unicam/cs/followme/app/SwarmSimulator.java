@@ -2,21 +2,15 @@ package it.unicam.cs.followme.app;
 
 import it.unicam.cs.followme.Controller;
 import it.unicam.cs.followme.RobotSwarmSimulator;
-import it.unicam.cs.followme.Simulator;
 import it.unicam.cs.followme.models.*;
-import it.unicam.cs.followme.util.Point;
 import it.unicam.cs.followme.utilities.FollowMeParserException;
-import it.unicam.cs.followme.utilities.ShapeData;
+import javafx.animation.AnimationTimer;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.TextField;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Rectangle;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
@@ -49,34 +43,179 @@ public class SwarmSimulator {
     @FXML
     public Button btnReset;
 
+    @FXML
+    public Button btnPlay;
+
+    @FXML
+    public TextField txtTicksPerFrame;
+
     // Constants for the field dimensions
     public final double FIELD_WIDTH = 500;
     public final double FIELD_HEIGHT = 500;
 
-    // Center point of the field
-    private final Point CENTER = new Point(FIELD_WIDTH/2, FIELD_HEIGHT/2);
+    // Zoom factor for every pixel scrolled
+    private static final double ZOOM_PER_PIXEL = 1.005;
 
     private Controller controller;
 
-    private Simulator simulator;
+    private RobotSwarmSimulator simulator;
 
     private double dt;
 
     private double time;
 
+    private SwarmRenderer renderer;
+
+    private final SwarmSnapshot still = new SwarmSnapshot();
+
+    private Viewport viewport;
+
+    private double dragX;
+
+    private double dragY;
+
+    private SimulationLoop loop;
+
+    /**
+     * Create the renderer once the simulation area has been injected, pan the viewport when the area is
+     * dragged and zoom it when the area is scrolled, and start drawing the latest snapshot of the
+     * background simulation on every frame.
+     */
+    @FXML
+    public void initialize() {
+        this.renderer = new SwarmRenderer(apArea, FIELD_WIDTH, FIELD_HEIGHT);
+        this.viewport = new Viewport(0, 0, 1, FIELD_WIDTH, FIELD_HEIGHT);
+        apArea.setOnMousePressed(e -> {
+            this.dragX = e.getX();
+            this.dragY = e.getY();
+        });
+        apArea.setOnMouseDragged(e -> {
+            this.setViewport(this.viewport.pan(e.getX() - this.dragX, e.getY() - this.dragY));
+            this.dragX = e.getX();
+            this.dragY = e.getY();
+        });
+        apArea.setOnScroll(e -> this.setViewport(this.viewport.zoom(Math.pow(ZOOM_PER_PIXEL, e.getDeltaY()), e.getX(), e.getY())));
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                onFrame();
+            }
+        }.start();
+    }
+
+    /**
+     * Change the visible part of the world, redrawing the shapes at once. While the simulation runs
+     * the next snapshot is taken in the new viewport, while it is paused the loop is asked for a
+     * snapshot, otherwise the robots are redrawn at once.
+     *
+     * @param viewport The new visible part of the world.
+     */
+    private void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+        if (this.controller == null)
+            return;
+        renderer.drawShapes(this.controller.getShapes(), viewport);
+        if (this.loop == null) {
+            drawRobots();
+            return;
+        }
+        this.loop.setViewport(viewport);
+        if (!this.loop.isPlaying())
+            this.loop.capture();
+    }
+
+    /**
+     * Draw the latest snapshot published by the background simulation, if a newer one is available.
+     */
+    private void onFrame() {
+        if (this.loop == null)
+            return;
+        this.loop.frame();
+        if (this.loop.hasFreshSnapshot()) {
+            SwarmSnapshot snapshot = this.loop.latest();
+            renderer.drawRobots(snapshot);
+        }
+        if (!this.loop.isPlaying()) {
+            btnPlay.setText("Play");
+            if (this.loop.getFailure() != null) {
+                System.out.println("The simulation failed: " + this.loop.getFailure().getMessage());
+                this.stopPlayback();
+            }
+        }
+    }
+
+    /**
+     * Start the simulation on a background thread, or pause it if it is running.
+     * The simulation advances by the given number of ticks per frame, or as fast as it can if none is given.
+     */
+    @FXML
+    public void onTogglePlay() {
+        if (this.loop != null && this.loop.isPlaying()) {
+            this.loop.pause();
+            btnPlay.setText("Play");
+            return;
+        }
+        if (this.controller == null)
+            return;
+        try {
+            this.dt = Double.parseDouble(txtDt.getText());
+            this.time = Double.parseDouble(txtTime.getText());
+            String ticks = txtTicksPerFrame.getText();
+            int ticksPerFrame = ticks == null || ticks.isBlank() ? 0 : Integer.parseInt(ticks.trim());
+            if (this.simulator == null)
+                this.simulator = new RobotSwarmSimulator(this.controller.getEnvironment());
+            if (this.loop == null || this.loop.getSimulator() != this.simulator) {
+                this.stopPlayback();
+                this.loop = new SimulationLoop(this.simulator, this.viewport);
+            }
+            this.loop.setViewport(this.viewport);
+            this.loop.setTicksPerFrame(ticksPerFrame);
+            this.loop.play(dt, time);
+            txtTime.setDisable(true);
+            txtDt.setDisable(true);
+            btnPlay.setText("Pause");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Add dt and time.");
+        }
+    }
+
+    /**
+     * Pause the background simulation and wait for its tick in progress, so that the environment can
+     * be changed from the application thread.
+     */
+    private void pausePlayback() {
+        if (this.loop != null) {
+            this.loop.pauseAndWait();
+            btnPlay.setText("Play");
+        }
+    }
+
+    /**
+     * Stop the background simulation for good, before its simulator is replaced.
+     */
+    private void stopPlayback() {
+        if (this.loop != null) {
+            this.loop.pause();
+            this.loop.close();
+            this.loop = null;
+            btnPlay.setText("Play");
+        }
+    }
+
     /**
      * Load default robots into the simulation.
      *
      * @throws IOException If an I/O error occurs during parsing.
      */
     public void loadDefaultRobot() throws IOException {
+        this.stopPlayback();
         this.controller = new Controller();
         this.controller.parseEntity();
-        this.simulator = new RobotSwarmSimulator(this.controller.getEntities());
+        this.simulator = new RobotSwarmSimulator(this.controller.getEnvironment());
         refresh();
         btnReset.setDisable(false);
         this.btnRandomRobots.setDisable(true);
-        simulator = new RobotSwarmSimulator(this.controller.getEntities());
+        simulator = new RobotSwarmSimulator(this.controller.getEnvironment());
     }
 
     /**
@@ -87,6 +226,7 @@ public class SwarmSimulator {
      */
     public void loadDefaultShapes() throws FollowMeParserException, IOException {
         if (this.controller != null) {
+            this.pausePlayback();
             this.controller.parseShape();
             refresh();
         }
@@ -100,6 +240,7 @@ public class SwarmSimulator {
      */
     public void loadDefaultProgram() throws FollowMeParserException, IOException {
         if (this.controller != null) {
+            this.pausePlayback();
             this.controller.parseProgram();
             refresh();
         }
@@ -109,6 +250,8 @@ public class SwarmSimulator {
      * Handle the event when generating random robots button is clicked.
      */
     public void onClickGenerateRandomRobots() {
+        this.stopPlayback();
+        this.simulator = null;
         this.controller = new Controller();
         try {
             int numRobots = Integer.parseInt(txtNRobots.getText());
@@ -126,82 +269,31 @@ public class SwarmSimulator {
      * Handle the event when the reset button is clicked.
      */
     public void onClickReset() {
+        this.stopPlayback();
         btnReset.setDisable(true);
         txtTime.setDisable(false);
         txtDt.setDisable(false);
         btnRandomRobots.setDisable(false);
         btnDefaultRobot.setDisable(false);
-        apArea.getChildren().clear();
+        renderer.clear();
         this.controller = new Controller();
         this.simulator = null;
     }
 
     /**
-     * Refresh the simulation display.
+     * Refresh the simulation display, redrawing the shapes only if they or the viewport changed.
      */
     public void refresh() {
-        apArea.getChildren().clear();
-        drawShapes();
+        renderer.drawShapes(this.controller.getShapes(), this.viewport);
         drawRobots();
     }
 
     /**
-     * Draw shapes in the simulation.
-     */
-    public void drawShapes() {
-        for (ShapeData s : this.controller.getShapes()) {
-            if (s.shape().equals("CIRCLE")) {
-                drawCircle(s);
-            } else {
-                drawRectangle(s);
-            }
-        }
-    }
-
-    /**
-     * Draw a circle shape in the simulation.
-     *
-     * @param s Shape data for the circle.
-     */
-    public void drawCircle(ShapeData s) {
-        if (isInRange(s.args()[0], s.args()[1])) {
-            double rightX = setX(s.args()[0]) + s.args()[2] / 4;
-            double rightY = setY(s.args()[1]) + s.args()[2] / 4;
-            Circle cc = new Circle(rightX, rightY, s.args()[2]);
-            cc.setFill(Color.BLUE);
-            apArea.getChildren().add(cc);
-        }
-    }
-
-    /**
-     * Draw a rectangle shape in the simulation.
-     *
-     * @param s Shape data for the rectangle.
-     */
-    public void drawRectangle(ShapeData s) {
-        if (isInRange(s.args()[0], s.args()[1])) {
-            double rightX = setX(s.args()[0]) - s.args()[2] / 2.5;
-            double rightY = setY(s.args()[1]) - s.args()[3] / 3.5;
-            Rectangle rt = new Rectangle(rightX, rightY, s.args()[2], s.args()[3]);
-            rt.setFill(Color.RED);
-            apArea.getChildren().add(rt);
-        }
-    }
-
-    /**
-     * Draw robots in the simulation.
+     * Draw the robots inside the viewport, asking the environment for them through a range query.
      */
     public void drawRobots() {
-        for (Entity e : this.controller.getEntities()) {
-            if (isInRange(e.getPosition().getX(), e.getPosition().getY())) {
-                ImageView imageView = new ImageView("/images/robot.png");
-                imageView.setFitWidth(30);
-                imageView.setPreserveRatio(true);
-                imageView.setLayoutX(setX(e.getPosition().getX()));
-                imageView.setLayoutY(setY(e.getPosition().getY()));
-                apArea.getChildren().add(imageView);
-            }
-        }
+        still.capture(-1, this.controller.getEnvironment(), this.viewport);
+        renderer.drawRobots(still);
     }
 
     /**
@@ -209,6 +301,7 @@ public class SwarmSimulator {
      */
     @FXML
     public void onLoadEntityFromFile() {
+        this.stopPlayback();
         this.controller = new Controller();
         File selectedFile = showFileChooser("Select Entities");
 
@@ -222,7 +315,7 @@ public class SwarmSimulator {
                 System.out.println("Error");
             }
         }
-        this.simulator = new RobotSwarmSimulator(this.controller.getEntities());
+        this.simulator = new RobotSwarmSimulator(this.controller.getEnvironment());
     }
 
     /**
@@ -231,6 +324,7 @@ public class SwarmSimulator {
     @FXML
     public void onLoadShapeFromFile() {
         if (this.controller != null) {
+            this.pausePlayback();
             File selectedFile = showFileChooser("Select Shapes");
 
             if (selectedFile != null) {
@@ -250,6 +344,7 @@ public class SwarmSimulator {
     @FXML
     public void onLoadProgramFromFile() {
         if (this.controller != null) {
+            this.pausePlayback();
             File selectedFile = showFileChooser("Select Program");
 
             if (selectedFile != null) {
@@ -281,43 +376,13 @@ public class SwarmSimulator {
         return fileChooser.showOpenDialog(stage);
     }
 
-    /**
-     * Check if a given point is within the simulation field.
-     *
-     * @param x The x-coordinate of the point.
-     * @param y The y-coordinate of the point.
-     * @return True if the point is within the field, false otherwise.
-     */
-    private Boolean isInRange(double x, double y) {
-        return x >= -FIELD_WIDTH/2 && x <= FIELD_WIDTH/2 && y >= -FIELD_HEIGHT/2 && y <= FIELD_HEIGHT/2;
-    }
-
-    /**
-     * Calculate the y-coordinate in the simulation based on the provided y-coordinate.
-     *
-     * @param y The y-coordinate.
-     * @return The adjusted y-coordinate for the simulation.
-     */
-    private double setY(double y) {
-        return (CENTER.getY()) - (FIELD_HEIGHT - (FIELD_HEIGHT - (y % FIELD_HEIGHT)));
-    }
-
-    /**
-     * Calculate the x-coordinate in the simulation based on the provided x-coordinate.
-     *
-     * @param x The x-coordinate.
-     * @return The adjusted x-coordinate for the simulation.
-     */
-    private double setX(double x) {
-        return ((CENTER.getX()) + FIELD_WIDTH - (FIELD_WIDTH - (x % FIELD_WIDTH)));
-    }
-
     /**
      * Execute the simulation based on the provided time and time step.
      */
     @FXML
     public void onExecuteSimulation() {
         if (this.simulator != null) {
+            this.pausePlayback();
             try {
                 txtTime.setDisable(true);
                 txtDt.setDisable(true);
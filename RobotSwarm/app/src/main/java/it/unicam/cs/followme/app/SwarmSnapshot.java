@@ -0,0 +1,180 @@
+package it.unicam.cs.followme.app;
+
+import it.unicam.cs.followme.models.Centroid;
+import it.unicam.cs.followme.models.Environment;
+import it.unicam.cs.followme.models.PositionSink;
+
+import java.util.Arrays;
+
+/**
+ * Robots visible in a viewport after a tick, copied from the environment so that they can be drawn
+ * while the simulation goes on. Only the robots inside the viewport are copied, found through the
+ * range queries of the environment. When more robots than {@link #DENSITY_LIMIT} are visible the
+ * snapshot holds instead the number of robots in each bin of a {@link #BINS}x{@link #BINS} grid over
+ * the viewport, filled from the groups of a density query, so that neither capturing nor drawing a
+ * snapshot costs more than what fits on the screen.
+ * Snapshots are reused through a {@link TripleBuffer}: a snapshot is only filled by the simulation
+ * thread and only read by the rendering thread once published.
+ */
+public final class SwarmSnapshot {
+
+    /**
+     * Number of visible robots above which the snapshot holds a density map instead of positions.
+     */
+    public static final int DENSITY_LIMIT = 20000;
+
+    /**
+     * Number of bins of the density map along each side of the viewport.
+     */
+    public static final int BINS = 64;
+
+    private final Centroid visible = new Centroid();
+
+    private final PositionSink positions = this::addPosition;
+
+    private final PositionSink density = this::addDensity;
+
+    private final int[] bins = new int[BINS * BINS];
+
+    private long tick = -1;
+
+    private Viewport viewport;
+
+    private boolean aggregated;
+
+    private int count;
+
+    private int maxBin;
+
+    private double[] x = new double[0];
+
+    private double[] y = new double[0];
+
+    /**
+     * Copies the robots of an environment that are visible in a viewport.
+     *
+     * @param tick        The tick after which the robots are taken.
+     * @param environment The environment of the robots.
+     * @param viewport    The visible part of the world.
+     */
+    public void capture(long tick, Environment environment, Viewport viewport) {
+        this.tick = tick;
+        this.viewport = viewport;
+        this.visible.clear();
+        environment.getDensityInRectangle(viewport.minX(), viewport.minY(), viewport.maxX(), viewport.maxY(), this.visible);
+        this.aggregated = this.visible.getCount() > DENSITY_LIMIT;
+        this.count = 0;
+        if (this.aggregated) {
+            this.maxBin = 0;
+            Arrays.fill(this.bins, 0);
+            environment.getDensityInRectangle(viewport.minX(), viewport.minY(), viewport.maxX(), viewport.maxY(), this.density);
+            this.count = this.visible.getCount();
+        } else {
+            if (this.x.length < this.visible.getCount()) {
+                this.x = new double[this.visible.getCount()];
+                this.y = new double[this.visible.getCount()];
+            }
+            environment.getPositionsInRectangle(viewport.minX(), viewport.minY(), viewport.maxX(), viewport.maxY(), this.positions);
+        }
+    }
+
+    /**
+     * Gets the tick after which the robots were taken.
+     *
+     * @return The tick of the snapshot, -1 if the snapshot was never filled.
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    /**
+     * Gets the viewport the robots were taken in.
+     *
+     * @return The viewport of the snapshot, null if the snapshot was never filled.
+     */
+    public Viewport getViewport() {
+        return this.viewport;
+    }
+
+    /**
+     * Checks whether the snapshot holds a density map instead of the positions of the robots.
+     *
+     * @return true if the snapshot holds a density map, false if it holds positions.
+     */
+    public boolean isAggregated() {
+        return this.aggregated;
+    }
+
+    /**
+     * Gets the number of visible robots of the snapshot.
+     *
+     * @return The number of visible robots of the snapshot.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Gets the x-coordinates of the visible robots, of which the first {@link #size()} are valid.
+     * The array must not be modified, and is not filled when the snapshot holds a density map.
+     *
+     * @return The x-coordinates of the visible robots.
+     */
+    public double[] getX() {
+        return this.x;
+    }
+
+    /**
+     * Gets the y-coordinates of the visible robots, of which the first {@link #size()} are valid.
+     * The array must not be modified, and is not filled when the snapshot holds a density map.
+     *
+     * @return The y-coordinates of the visible robots.
+     */
+    public double[] getY() {
+        return this.y;
+    }
+
+    /**
+     * Gets the number of robots in the bins of the density map, row by row from the top left bin.
+     * The array must not be modified, and is only filled when the snapshot holds a density map.
+     *
+     * @return The number of robots in each bin.
+     */
+    public int[] getBins() {
+        return this.bins;
+    }
+
+    /**
+     * Gets the largest number of robots in a bin of the density map.
+     *
+     * @return The largest number of robots in a bin.
+     */
+    public int getMaxBin() {
+        return this.maxBin;
+    }
+
+    private void addPosition(int count, double sumX, double sumY) {
+        if (this.count == this.x.length) {
+            this.x = Arrays.copyOf(this.x, 2 * this.count + 1);
+            this.y = Arrays.copyOf(this.y, 2 * this.count + 1);
+        }
+        this.x[this.count] = sumX;
+        this.y[this.count] = sumY;
+        this.count++;
+    }
+
+    /**
+     * Adds a group of robots to the bin containing their centroid.
+     */
+    private void addDensity(int count, double sumX, double sumY) {
+        int column = this.bin(this.viewport.toScreenX(sumX / count) / this.viewport.width());
+        int row = this.bin(this.viewport.toScreenY(sumY / count) / this.viewport.height());
+        int bin = row * BINS + column;
+        this.bins[bin] += count;
+        this.maxBin = Math.max(this.maxBin, this.bins[bin]);
+    }
+
+    private int bin(double fraction) {
+        return Math.max(0, Math.min(BINS - 1, (int) (fraction * BINS)));
+    }
+}
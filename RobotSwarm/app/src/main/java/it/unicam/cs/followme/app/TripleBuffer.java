@@ -0,0 +1,81 @@
+package it.unicam.cs.followme.app;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free triple buffer handing the latest value from a single writer thread to a single reader thread.
+ * The writer fills its back buffer and publishes it by swapping it with the middle buffer; the reader
+ * takes the middle buffer by swapping it with its front buffer, only if a newer one was published.
+ * Neither side ever waits for the other, and the buffer held by one side is never touched by the other,
+ * so the reader sees a buffer as immutable for as long as it holds it.
+ *
+ * @param <T> The type of the buffers.
+ */
+public final class TripleBuffer<T> {
+
+    private static final int INDEX = 3;
+
+    private static final int FRESH = 4;
+
+    private final Object[] buffers;
+
+    private final AtomicInteger middle;
+
+    private int back;
+
+    private int front;
+
+    /**
+     * Constructs a triple buffer, creating its three buffers.
+     *
+     * @param factory The factory creating the buffers.
+     */
+    public TripleBuffer(Supplier<? extends T> factory) {
+        this.buffers = new Object[]{factory.get(), factory.get(), factory.get()};
+        this.front = 0;
+        this.middle = new AtomicInteger(1);
+        this.back = 2;
+    }
+
+    /**
+     * Gets the buffer the writer fills, which is not visible to the reader until it is published.
+     * Only the writer thread may call this method.
+     *
+     * @return The back buffer.
+     */
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) this.buffers[this.back];
+    }
+
+    /**
+     * Publishes the back buffer, which becomes the latest value, and gives the writer a new back buffer.
+     * Only the writer thread may call this method.
+     */
+    public void publish() {
+        this.back = this.middle.getAndSet(this.back | FRESH) & INDEX;
+    }
+
+    /**
+     * Gets the latest published buffer, keeping the one already held if nothing newer was published.
+     * Only the reader thread may call this method.
+     *
+     * @return The front buffer.
+     */
+    @SuppressWarnings("unchecked")
+    public T front() {
+        if ((this.middle.get() & FRESH) != 0)
+            this.front = this.middle.getAndSet(this.front) & INDEX;
+        return (T) this.buffers[this.front];
+    }
+
+    /**
+     * Checks whether a buffer was published since the reader last took one.
+     *
+     * @return true if a newer buffer is available to the reader, false otherwise.
+     */
+    public boolean hasFresh() {
+        return (this.middle.get() & FRESH) != 0;
+    }
+}
@@ -0,0 +1,140 @@
+package it.unicam.cs.followme.app;
+
+/**
+ * Visible part of the world, given by the world position at the center of the screen, the number of
+ * pixels per world unit and the size of the screen area. A viewport is immutable, so that the
+ * rendering thread can hand it to the simulation thread by replacing a reference.
+ * The y-axis of the world points up, the y-axis of the screen points down.
+ *
+ * @param centerX The x-coordinate of the world position at the center of the screen.
+ * @param centerY The y-coordinate of the world position at the center of the screen.
+ * @param scale   The number of pixels per world unit.
+ * @param width   The width of the screen area, in pixels.
+ * @param height  The height of the screen area, in pixels.
+ */
+public record Viewport(double centerX, double centerY, double scale, double width, double height) {
+
+    /**
+     * Smallest number of pixels per world unit a viewport can be zoomed out to.
+     */
+    public static final double MIN_SCALE = 1e-3;
+
+    /**
+     * Largest number of pixels per world unit a viewport can be zoomed in to.
+     */
+    public static final double MAX_SCALE = 1e3;
+
+    /**
+     * Constructs a viewport, checking its scale and size.
+     *
+     * @throws IllegalArgumentException If the scale or the size is not positive.
+     */
+    public Viewport {
+        if (!(scale > 0) || !(width > 0) || !(height > 0))
+            throw new IllegalArgumentException("The scale and the size of the viewport must be positive.");
+    }
+
+    /**
+     * Gets the minimum visible x-coordinate of the world.
+     *
+     * @return The world x-coordinate at the left edge of the screen.
+     */
+    public double minX() {
+        return this.centerX - this.width / (2 * this.scale);
+    }
+
+    /**
+     * Gets the maximum visible x-coordinate of the world.
+     *
+     * @return The world x-coordinate at the right edge of the screen.
+     */
+    public double maxX() {
+        return this.centerX + this.width / (2 * this.scale);
+    }
+
+    /**
+     * Gets the minimum visible y-coordinate of the world.
+     *
+     * @return The world y-coordinate at the bottom edge of the screen.
+     */
+    public double minY() {
+        return this.centerY - this.height / (2 * this.scale);
+    }
+
+    /**
+     * Gets the maximum visible y-coordinate of the world.
+     *
+     * @return The world y-coordinate at the top edge of the screen.
+     */
+    public double maxY() {
+        return this.centerY + this.height / (2 * this.scale);
+    }
+
+    /**
+     * Converts a world x-coordinate to a screen x-coordinate.
+     *
+     * @param x The world x-coordinate.
+     * @return The screen x-coordinate.
+     */
+    public double toScreenX(double x) {
+        return this.width / 2 + (x - this.centerX) * this.scale;
+    }
+
+    /**
+     * Converts a world y-coordinate to a screen y-coordinate.
+     *
+     * @param y The world y-coordinate.
+     * @return The screen y-coordinate.
+     */
+    public double toScreenY(double y) {
+        return this.height / 2 - (y - this.centerY) * this.scale;
+    }
+
+    /**
+     * Converts a screen x-coordinate to a world x-coordinate.
+     *
+     * @param screenX The screen x-coordinate.
+     * @return The world x-coordinate.
+     */
+    public double toWorldX(double screenX) {
+        return this.centerX + (screenX - this.width / 2) / this.scale;
+    }
+
+    /**
+     * Converts a screen y-coordinate to a world y-coordinate.
+     *
+     * @param screenY The screen y-coordinate.
+     * @return The world y-coordinate.
+     */
+    public double toWorldY(double screenY) {
+        return this.centerY - (screenY - this.height / 2) / this.scale;
+    }
+
+    /**
+     * Moves the viewport so that the world follows a drag of the pointer on the screen.
+     *
+     * @param screenDx The horizontal distance dragged, in pixels.
+     * @param screenDy The vertical distance dragged, in pixels.
+     * @return The moved viewport.
+     */
+    public Viewport pan(double screenDx, double screenDy) {
+        return new Viewport(this.centerX - screenDx / this.scale, this.centerY + screenDy / this.scale,
+                this.scale, this.width, this.height);
+    }
+
+    /**
+     * Zooms the viewport by a factor, keeping the world position under a screen point in place.
+     *
+     * @param factor  The factor multiplying the scale, greater than 1 to zoom in.
+     * @param screenX The x-coordinate of the fixed screen point.
+     * @param screenY The y-coordinate of the fixed screen point.
+     * @return The zoomed viewport.
+     */
+    public Viewport zoom(double factor, double screenX, double screenY) {
+        double scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, this.scale * factor));
+        double worldX = this.toWorldX(screenX);
+        double worldY = this.toWorldY(screenY);
+        return new Viewport(worldX - (screenX - this.width / 2) / scale, worldY + (screenY - this.height / 2) / scale,
+                scale, this.width, this.height);
+    }
+}
@@ -0,0 +1,49 @@
+package it.unicam.cs.followme.benchmarks;
+
+import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.util.Point;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a FOLLOW tick, in which every robot of the swarm queries its neighbors.
+ * Robots are spread with a constant density, so the number of neighbors per robot does not
+ * depend on the swarm size and the time per tick should grow linearly with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NeighborQueryBenchmark {
+
+    private static final double DENSITY = 0.01;
+
+    @Param({"1000", "10000", "100000"})
+    public int swarmSize;
+
+    @Param({"5", "20"})
+    public double radius;
+
+    private List<Entity> robots;
+
+    @Setup
+    public void setUp() {
+        RobotEnvironment environment = new RobotEnvironment(radius);
+        double side = Math.sqrt(swarmSize / DENSITY);
+        Random random = new Random(42);
+        for (int i = 0; i < swarmSize; i++)
+            environment.addEntity(new Robot(new Point(random.nextDouble() * side, random.nextDouble() * side)));
+        robots = environment.getEntities();
+    }
+
+    @Benchmark
+    public void neighborTick(Blackhole blackhole) {
+        for (Entity robot : robots)
+            blackhole.consume(robot.getNeighbors(radius));
+    }
+}
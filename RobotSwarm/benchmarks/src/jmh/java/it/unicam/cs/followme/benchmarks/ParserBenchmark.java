@@ -0,0 +1,78 @@
+package it.unicam.cs.followme.benchmarks;
+
+import it.unicam.cs.followme.models.ParserHandler;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.utilities.FollowMeParser;
+import it.unicam.cs.followme.utilities.FollowMeParserException;
+import it.unicam.cs.followme.utilities.ShapeData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of a robot program, including its compilation and assignment to the
+ * swarm, and the parsing of an environment description.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int swarmSize;
+
+    @Param({"10", "1000"})
+    public int shapeCount;
+
+    private FollowMeParser parser;
+
+    private String program;
+
+    private String shapes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RobotEnvironment environment = new RobotEnvironment();
+        Random random = new Random(42);
+        for (int i = 0; i < swarmSize; i++)
+            environment.addEntity(new Robot(new Point(random.nextDouble() * 1000, random.nextDouble() * 1000)));
+        parser = new FollowMeParser(new ParserHandler(environment));
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            code.append("REPEAT 5\n")
+                    .append("FOLLOW LABEL").append(i).append(" 20 2\n")
+                    .append("UNTIL ZONE").append(i).append('\n')
+                    .append("MOVE RANDOM -300 300 -300 300 10\n")
+                    .append("DONE\n")
+                    .append("SIGNAL LABEL").append(i).append('\n')
+                    .append("CONTINUE 3\n")
+                    .append("UNSIGNAL LABEL").append(i).append('\n')
+                    .append("DONE\n");
+        }
+        program = code.toString();
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < shapeCount; i++) {
+            if (i % 2 == 0)
+                data.append("ZONE").append(i % 10).append(" CIRCLE ").append(random.nextInt(1000)).append(' ')
+                        .append(random.nextInt(1000)).append(" 20\n");
+            else
+                data.append("ZONE").append(i % 10).append(" RECTANGLE ").append(random.nextInt(1000)).append(' ')
+                        .append(random.nextInt(1000)).append(" 20 10\n");
+        }
+        shapes = data.toString();
+    }
+
+    @Benchmark
+    public void parseRobotProgram() throws FollowMeParserException {
+        parser.parseRobotProgram(program);
+    }
+
+    @Benchmark
+    public List<ShapeData> parseEnvironment() throws FollowMeParserException {
+        return parser.parseEnvironment(shapes);
+    }
+}
@@ -0,0 +1,95 @@
+package it.unicam.cs.followme.benchmarks;
+
+import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.utilities.Geometry;
+import it.unicam.cs.followme.utilities.ShapeData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a containment check of every point against every shape through the compiled
+ * geometry of the shapes, as the shape index stores it, with the same check through the
+ * former path, which switched on the name of the shape and allocated two points and took a
+ * square root for every circle. The arguments of the shapes are read once, before the
+ * measurement, since reading them now copies them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ShapeContainmentBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"16", "256"})
+    public int shapeCount;
+
+    @Param({"GEOMETRY", "STRING"})
+    public String path;
+
+    private ShapeData[] shapes;
+
+    private double[][] args;
+
+    private Geometry[] geometries;
+
+    private double[] xs;
+
+    private double[] ys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        shapes = new ShapeData[shapeCount];
+        for (int i = 0; i < shapeCount; i++) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 100;
+            if (i % 2 == 0)
+                shapes[i] = new ShapeData("ZONE", "CIRCLE", new double[]{x, y, 1 + random.nextDouble() * 10});
+            else
+                shapes[i] = new ShapeData("ZONE", "RECTANGLE", new double[]{x, y, 1 + random.nextDouble() * 10, 1 + random.nextDouble() * 10});
+        }
+        args = new double[shapeCount][];
+        geometries = new Geometry[shapeCount];
+        for (int i = 0; i < shapeCount; i++) {
+            args[i] = shapes[i].args();
+            geometries[i] = shapes[i].geometry();
+        }
+        xs = new double[POINTS];
+        ys = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+        }
+    }
+
+    @Benchmark
+    public int contains() {
+        int inside = 0;
+        if (path.equals("GEOMETRY")) {
+            for (int i = 0; i < POINTS; i++)
+                for (Geometry geometry : geometries)
+                    if (geometry.contains(xs[i], ys[i]))
+                        inside++;
+        } else {
+            for (int i = 0; i < POINTS; i++)
+                for (int j = 0; j < shapes.length; j++)
+                    if (containsByName(shapes[j].shape(), args[j], new Point(xs[i], ys[i])))
+                        inside++;
+        }
+        return inside;
+    }
+
+    /**
+     * Containment check the compiled geometry replaced.
+     */
+    private static boolean containsByName(String shape, double[] args, Point position) {
+        return switch (shape) {
+            case "CIRCLE" -> args[2] >= new Point(args[0], args[1]).distance(position);
+            case "RECTANGLE" -> position.getX() >= args[0] && position.getX() <= (args[0] + args[2])
+                    && position.getY() >= args[1] && position.getY() <= (args[1] + args[3]);
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package it.unicam.cs.followme.benchmarks;
+
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.command.FollowCommand;
+import it.unicam.cs.followme.command.ForeverCommand;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.models.Entity;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.util.Point;
+import it.unicam.cs.followme.utilities.ShapeData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-tick cost of the queries a robot program performs, each benchmark applying
+ * one query to every robot of the swarm. Half of the robots signal the followed label and the
+ * environment holds shapes spread over ten labels.
+ * Following moves the robots, so the swarm is rebuilt from the same seed before every iteration,
+ * and every iteration starts from the same layout instead of the clusters the previous one left.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SwarmHotPathBenchmark {
+
+    private static final double DENSITY = 0.01;
+
+    private static final String LABEL = "LABEL";
+
+    @Param({"1000", "10000", "100000"})
+    public int swarmSize;
+
+    @Param({"5", "20"})
+    public double radius;
+
+    @Param({"10", "1000"})
+    public int shapeCount;
+
+    private List<Entity> robots;
+
+    private FollowCommand follow;
+
+    private RobotSwarmSimulator simulator;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        RobotEnvironment environment = new RobotEnvironment(radius);
+        double side = Math.sqrt(swarmSize / DENSITY);
+        Random random = new Random(42);
+        for (int i = 0; i < shapeCount; i++) {
+            String label = "ZONE" + (i % 10);
+            double x = random.nextDouble() * side;
+            double y = random.nextDouble() * side;
+            if (i % 2 == 0)
+                environment.addShape(new ShapeData(label, "CIRCLE", new double[]{x, y, 1 + random.nextDouble() * radius}));
+            else
+                environment.addShape(new ShapeData(label, "RECTANGLE", new double[]{x, y, 1 + random.nextDouble() * radius, 1 + random.nextDouble() * radius}));
+        }
+        follow = new FollowCommand(LABEL, radius, 1, environment.getLabels());
+        ForeverCommand loop = new ForeverCommand();
+        loop.addCommand(follow);
+        Program program = Program.compile(List.of(loop));
+        for (int i = 0; i < swarmSize; i++) {
+            Robot robot = new Robot(new Point(random.nextDouble() * side, random.nextDouble() * side));
+            robot.addProgram(program);
+            environment.addEntity(robot);
+            if (i % 2 == 0)
+                robot.setLabel(LABEL);
+        }
+        robots = environment.getEntities();
+        simulator = new RobotSwarmSimulator(environment);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        simulator.close();
+    }
+
+    @Benchmark
+    public void getNeighbors(Blackhole blackhole) {
+        for (Entity robot : robots)
+            blackhole.consume(robot.getNeighbors(radius));
+    }
+
+    @Benchmark
+    public void getCommonSignal(Blackhole blackhole) {
+        for (Entity robot : robots)
+            blackhole.consume(robot.getCommonSignal());
+    }
+
+    @Benchmark
+    public void isInsideAShape(Blackhole blackhole) {
+        for (Entity robot : robots)
+            blackhole.consume(robot.isInsideAShape("ZONE0"));
+    }
+
+    @Benchmark
+    public void followExecute() {
+        for (Entity robot : robots)
+            follow.execute(robot);
+    }
+
+    @Benchmark
+    public void simulatorTick() {
+        simulator.step(1, Double.MAX_VALUE, 1);
+    }
+}
@@ -0,0 +1,135 @@
+package it.unicam.cs.followme.benchmarks;
+
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.SwarmState;
+import it.unicam.cs.followme.util.Direction;
+import it.unicam.cs.followme.util.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a movement tick over the structure-of-arrays swarm state with the same tick over the
+ * former layout, in which every robot was a heap object holding a Point, a Direction, a label
+ * and a list of commands. The swarm state is moved through its robots inside a tick of their
+ * environment, so it pays for the spatial index updates a tick of the simulator pays for.
+ * The heap retained by each layout is measured once per trial and
+ * reported with the results as the retainedBytes auxiliary counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SwarmLayoutBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int swarmSize;
+
+    @Param({"SOA", "OBJECTS"})
+    public String layout;
+
+    private RobotEnvironment environment;
+
+    private List<Robot> robots;
+
+    private SwarmState state;
+
+    private List<ObjectRobot> objects;
+
+    private long retainedBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        Random random = new Random(42);
+        if (layout.equals("SOA")) {
+            environment = new RobotEnvironment();
+            robots = new ArrayList<>(swarmSize);
+            for (int i = 0; i < swarmSize; i++) {
+                Robot robot = new Robot(new Point(random.nextDouble() * 1000, random.nextDouble() * 1000));
+                robot.setDirection(new Direction(random.nextDouble(), random.nextDouble()));
+                robot.setSpeed(1);
+                environment.addEntity(robot);
+                robots.add(robot);
+            }
+            state = environment.getState();
+        } else {
+            objects = new ArrayList<>(swarmSize);
+            for (int i = 0; i < swarmSize; i++) {
+                ObjectRobot robot = new ObjectRobot(new Point(random.nextDouble() * 1000, random.nextDouble() * 1000));
+                robot.direction = new Direction(random.nextDouble(), random.nextDouble());
+                robot.speed = 1;
+                objects.add(robot);
+            }
+        }
+        retainedBytes = usedHeap() - before;
+    }
+
+    @Benchmark
+    public double moveTick(Footprint footprint) {
+        double checksum = 0;
+        if (state != null) {
+            environment.tickStarted();
+            for (Robot robot : robots)
+                robot.move();
+            environment.tickDone();
+            for (int slot = 0; slot < state.size(); slot++)
+                checksum += state.getX(slot) + state.getY(slot);
+        } else {
+            for (ObjectRobot robot : objects) {
+                robot.position = new Point(robot.position.getX() + robot.speed * robot.direction.getDeltaX(),
+                        robot.position.getY() + robot.speed * robot.direction.getDeltaY());
+                checksum += robot.position.getX() + robot.position.getY();
+            }
+        }
+        return checksum;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Auxiliary counter reporting the heap retained by the layout of the trial.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long retainedBytes;
+
+        @Setup(Level.Iteration)
+        public void setUp(SwarmLayoutBenchmark benchmark) {
+            retainedBytes = benchmark.retainedBytes;
+        }
+    }
+
+    /**
+     * Object-per-robot layout the swarm state replaced.
+     */
+    private static final class ObjectRobot {
+
+        private Point position;
+
+        private Direction direction;
+
+        private double speed;
+
+        private String label = "";
+
+        private final LinkedList<Object> commands = new LinkedList<>();
+
+        private ObjectRobot(Point position) {
+            this.position = position;
+        }
+    }
+}
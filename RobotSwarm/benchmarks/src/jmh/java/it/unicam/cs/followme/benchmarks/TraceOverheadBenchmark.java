@@ -0,0 +1,57 @@
+package it.unicam.cs.followme.benchmarks;
+
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.command.RepeatCommand;
+import it.unicam.cs.followme.command.SignalCommand;
+import it.unicam.cs.followme.command.UnsignalCommand;
+import it.unicam.cs.followme.models.Robot;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.trace.RingBufferTraceSink;
+import it.unicam.cs.followme.trace.TraceSink;
+import it.unicam.cs.followme.util.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of tracing a tick, comparing the disabled sink with the in-memory ring buffer.
+ * The disabled sink should cost the same as a tick without tracing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TraceOverheadBenchmark {
+
+    @Param({"10000"})
+    public int swarmSize;
+
+    @Param({"NONE", "RING"})
+    public String sink;
+
+    private RobotSwarmSimulator simulator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RobotEnvironment environment = new RobotEnvironment();
+        RepeatCommand loop = new RepeatCommand(Integer.MAX_VALUE);
+        loop.addCommand(new SignalCommand("LABEL", environment.getLabels()));
+        loop.addCommand(new UnsignalCommand("LABEL", environment.getLabels()));
+        Program program = Program.compile(List.of(loop));
+        Random random = new Random(42);
+        for (int i = 0; i < swarmSize; i++) {
+            Robot robot = new Robot(new Point(random.nextDouble() * 1000, random.nextDouble() * 1000));
+            robot.addProgram(program);
+            environment.addEntity(robot);
+        }
+        simulator = new RobotSwarmSimulator(environment);
+        simulator.setTraceSink(sink.equals("RING") ? new RingBufferTraceSink(1 << 16) : TraceSink.NO_OP);
+    }
+
+    @Benchmark
+    public void tick() {
+        simulator.step(1, Double.MAX_VALUE, 1);
+    }
+}
@@ -0,0 +1,79 @@
+package it.unicam.cs.followme.benchmarks;
+
+import it.unicam.cs.followme.RobotSwarmSimulator;
+import it.unicam.cs.followme.command.Program;
+import it.unicam.cs.followme.command.RandomMoveCommand;
+import it.unicam.cs.followme.command.RepeatCommand;
+import it.unicam.cs.followme.models.RobotEnvironment;
+import it.unicam.cs.followme.trace.TickListener;
+import it.unicam.cs.followme.trace.TrajectoryRecorder;
+import it.unicam.cs.followme.util.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of recording the trajectories of a moving swarm, comparing a tick without
+ * recorder with a tick recorded raw and deflated. Half of the robots stand still, so the
+ * delta encoding of their coordinates is exercised alongside the one of moving robots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrajectoryRecorderBenchmark {
+
+    @Param({"100000"})
+    public int swarmSize;
+
+    @Param({"NONE", "RAW", "DEFLATE"})
+    public String recording;
+
+    private RobotSwarmSimulator simulator;
+
+    private TrajectoryRecorder recorder;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        RepeatCommand loop = new RepeatCommand(Integer.MAX_VALUE);
+        loop.addCommand(new RandomMoveCommand(new Point(-10, -10), new Point(10, 10), 1));
+        Program program = Program.compile(List.of(loop));
+        Random random = new Random(42);
+        double[] xs = new double[swarmSize];
+        double[] ys = new double[swarmSize];
+        for (int i = 0; i < swarmSize; i++) {
+            xs[i] = random.nextDouble() * 1000;
+            ys[i] = random.nextDouble() * 1000;
+        }
+        RobotEnvironment environment = new RobotEnvironment();
+        environment.addRobots(xs, ys, swarmSize);
+        for (int i = 0; i < swarmSize; i += 2)
+            environment.getEntities().get(i).addProgram(program);
+        simulator = new RobotSwarmSimulator(environment);
+        simulator.setSeed(42);
+        if (!recording.equals("NONE")) {
+            file = Files.createTempFile("trajectory", ".bin");
+            recorder = new TrajectoryRecorder(file, 8, recording.equals("DEFLATE"));
+        }
+        simulator.setTickListener(recorder == null ? TickListener.NO_OP : recorder);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (recorder != null) {
+            recorder.close();
+            Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public void tick() {
+        simulator.step(1, Double.MAX_VALUE, 1);
+    }
+}
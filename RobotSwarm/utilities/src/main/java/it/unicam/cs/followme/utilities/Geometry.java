@@ -0,0 +1,128 @@
+package it.unicam.cs.followme.utilities;
+
+/**
+ * Immutable geometry of a shape, compiled once from the arguments of a {@link ShapeData}.
+ * Containment checks read only precomputed fields and do not allocate.
+ */
+public sealed interface Geometry permits Geometry.Circle, Geometry.Rectangle {
+
+    /**
+     * Checks whether a point is inside the shape, boundary included.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return true if the point is inside the shape, false otherwise.
+     */
+    boolean contains(double x, double y);
+
+    /**
+     * Gets the smallest x-coordinate of the bounding box of the shape.
+     *
+     * @return The smallest x-coordinate of the shape.
+     */
+    double minX();
+
+    /**
+     * Gets the smallest y-coordinate of the bounding box of the shape.
+     *
+     * @return The smallest y-coordinate of the shape.
+     */
+    double minY();
+
+    /**
+     * Gets the largest x-coordinate of the bounding box of the shape.
+     *
+     * @return The largest x-coordinate of the shape.
+     */
+    double maxX();
+
+    /**
+     * Gets the largest y-coordinate of the bounding box of the shape.
+     *
+     * @return The largest y-coordinate of the shape.
+     */
+    double maxY();
+
+    /**
+     * Compiles the geometry of a shape. Circles are given by center and radius,
+     * rectangles by their lower-left corner, width and height.
+     *
+     * @param shape The kind of the shape, CIRCLE or RECTANGLE.
+     * @param args  The arguments of the shape.
+     * @return The geometry of the shape.
+     * @throws IllegalArgumentException If the shape is unknown or its arguments do not match it.
+     */
+    static Geometry of(String shape, double[] args) {
+        if ("CIRCLE".equals(shape) && args.length == 3)
+            return new Circle(args[0], args[1], args[2]);
+        if ("RECTANGLE".equals(shape) && args.length == 4)
+            return new Rectangle(args[0], args[1], args[0] + args[2], args[1] + args[3]);
+        throw new IllegalArgumentException("Unknown shape or wrong number of arguments.");
+    }
+
+    /**
+     * Circle with a precomputed squared radius, so that containment needs no square root.
+     * A negative radius contains no point.
+     *
+     * @param centerX       The x-coordinate of the center.
+     * @param centerY       The y-coordinate of the center.
+     * @param radius        The radius.
+     * @param squaredRadius The square of the radius, negative if the radius is.
+     */
+    record Circle(double centerX, double centerY, double radius, double squaredRadius) implements Geometry {
+
+        /**
+         * Constructs a circle with the given center and radius.
+         *
+         * @param centerX The x-coordinate of the center.
+         * @param centerY The y-coordinate of the center.
+         * @param radius  The radius.
+         */
+        public Circle(double centerX, double centerY, double radius) {
+            this(centerX, centerY, radius, Math.copySign(radius * radius, radius));
+        }
+
+        @Override
+        public boolean contains(double x, double y) {
+            double dx = x - this.centerX;
+            double dy = y - this.centerY;
+            return dx * dx + dy * dy <= this.squaredRadius;
+        }
+
+        @Override
+        public double minX() {
+            return this.centerX - this.radius;
+        }
+
+        @Override
+        public double minY() {
+            return this.centerY - this.radius;
+        }
+
+        @Override
+        public double maxX() {
+            return this.centerX + this.radius;
+        }
+
+        @Override
+        public double maxY() {
+            return this.centerY + this.radius;
+        }
+    }
+
+    /**
+     * Axis-aligned rectangle given by its bounds. A rectangle whose minimum exceeds its maximum contains no point.
+     *
+     * @param minX The smallest x-coordinate.
+     * @param minY The smallest y-coordinate.
+     * @param maxX The largest x-coordinate.
+     * @param maxY The largest y-coordinate.
+     */
+    record Rectangle(double minX, double minY, double maxX, double maxY) implements Geometry {
+
+        @Override
+        public boolean contains(double x, double y) {
+            return x >= this.minX && x <= this.maxX && y >= this.minY && y <= this.maxY;
+        }
+    }
+}
@@ -2,7 +2,45 @@ package it.unicam.cs.followme.utilities;
 
 import java.util.stream.IntStream;
 
-public record ShapeData(String label, String shape, double[] args) {
+/**
+ * Shape of an environment, with the geometry compiled from its kind and arguments.
+ * The arguments are copied on the way in and out, so the geometry always matches them.
+ *
+ * @param label    The label of the shape.
+ * @param shape    The kind of the shape, CIRCLE or RECTANGLE.
+ * @param args     The arguments of the shape.
+ * @param geometry The geometry compiled from the kind and the arguments of the shape.
+ */
+public record ShapeData(String label, String shape, double[] args, Geometry geometry) {
+
+    /**
+     * Constructs a shape, copying its arguments and compiling its geometry from them.
+     *
+     * @throws IllegalArgumentException If the shape is unknown, its arguments do not match it,
+     *                                  or the geometry given is not the one of the shape.
+     */
+    public ShapeData {
+        args = args.clone();
+        Geometry compiled = Geometry.of(shape, args);
+        if (geometry != null && !geometry.equals(compiled))
+            throw new IllegalArgumentException("The geometry does not match the shape.");
+        geometry = compiled;
+    }
+
+    public ShapeData(String label, String shape, double[] args) {
+        this(label, shape, args, null);
+    }
+
+    /**
+     * Gets a copy of the arguments of the shape.
+     *
+     * @return The arguments of the shape.
+     */
+    @Override
+    public double[] args() {
+        return this.args.clone();
+    }
+
     public static ShapeData fromString(String[] elements) {
         return new ShapeData(elements[0],
             elements[1],